@@ -0,0 +1,61 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code BookServiceImpl.filter}: the {@code Example}/{@code ExampleMatcher} CONTAINING search plus the
+ * count query behind every {@code Page}, over catalogs of growing size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookFilterBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+
+    private BookService bookService;
+
+    private final Pageable firstPage = PageRequest.of(0, 20);
+
+    @Setup
+    public void setup() {
+        context = LibraryContext.start();
+        LibraryContext.seedBooks(context, rows);
+
+        bookService = context.getBean(BookService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Book> filterByTitle() {
+        return bookService.filter(Book.builder().title("adventures of book 4242").build(), firstPage);
+    }
+
+    @Benchmark
+    public Page<Book> filterByAuthor() {
+        return bookService.filter(Book.builder().author("author 42").build(), firstPage);
+    }
+
+    @Benchmark
+    public Page<Book> filterWithoutMatches() {
+        return bookService.filter(Book.builder().title("no such title").build(), firstPage);
+    }
+}
@@ -0,0 +1,78 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookKeyset;
+import com.iagosaito.libraryapi.domain.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offset paging against keyset paging at the same depth of a title-ordered search matching every book.
+ * The offset variant pays for the skipped rows and the count; the keyset one should stay flat.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookKeysetBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"200000"})
+    private int rows;
+
+    @Param({"0", "1000", "9999"})
+    private int page;
+
+    private ConfigurableApplicationContext context;
+
+    private BookService bookService;
+
+    private final Book byAuthor = Book.builder().author("author").build();
+
+    private Pageable offsetPage;
+
+    private BookKeyset keyset;
+
+    @Setup
+    public void setup() {
+        context = LibraryContext.start();
+        LibraryContext.seedBooks(context, rows);
+
+        bookService = context.getBean(BookService.class);
+
+        Sort byTitle = Sort.by("title");
+        offsetPage = PageRequest.of(page, PAGE_SIZE, byTitle);
+        keyset = BookKeyset.first(byTitle);
+
+        if (page > 0) {
+            List<Book> previous = bookService.filter(byAuthor, PageRequest.of(page - 1, PAGE_SIZE, byTitle)).getContent();
+            keyset = keyset.after(previous.get(previous.size() - 1));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Book> offset() {
+        return bookService.filter(byAuthor, offsetPage);
+    }
+
+    @Benchmark
+    public Slice<Book> keyset() {
+        return bookService.filter(byAuthor, keyset, PAGE_SIZE);
+    }
+}
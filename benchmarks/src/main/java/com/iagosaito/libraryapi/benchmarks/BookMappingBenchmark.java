@@ -0,0 +1,117 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import com.iagosaito.libraryapi.api.dto.BookModel;
+import com.iagosaito.libraryapi.api.dto.LoanModel;
+import com.iagosaito.libraryapi.api.mapper.BookMapper;
+import com.iagosaito.libraryapi.api.mapper.LoanMapper;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.model.Loan;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Per-request cost of the DTO mapping done by the controllers: the reflective {@link ModelMapper}
+ * the api used to rely on versus the generated MapStruct mappers.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar BookMappingBenchmark
+ * </pre>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookMappingBenchmark {
+
+    @Param({"20", "1000"})
+    private int pageSize;
+
+    private ModelMapper modelMapper;
+
+    private BookMapper bookMapper;
+
+    private LoanMapper loanMapper;
+
+    private Book book;
+
+    private BookModel bookModel;
+
+    private List<Book> page;
+
+    private LoanModel loanModel;
+
+    @Setup
+    public void setup() {
+        modelMapper = new ModelMapper();
+        bookMapper = Mappers.getMapper(BookMapper.class);
+        loanMapper = Mappers.getMapper(LoanMapper.class);
+
+        book = createBook(1L);
+        bookModel = BookModel.builder().title("The Adventures of Iago").author("Iago").isbn("1").build();
+        loanModel = LoanModel.builder().isbn("1").customer("Iago Saito").build();
+
+        page = new ArrayList<>(pageSize);
+        for (long id = 1; id <= pageSize; id++) {
+            page.add(createBook(id));
+        }
+    }
+
+    @Benchmark
+    public BookModel toModelWithModelMapper() {
+        return modelMapper.map(book, BookModel.class);
+    }
+
+    @Benchmark
+    public BookModel toModelWithMapStruct() {
+        return bookMapper.toModel(book);
+    }
+
+    @Benchmark
+    public Book toEntityWithModelMapper() {
+        return modelMapper.map(bookModel, Book.class);
+    }
+
+    @Benchmark
+    public Book toEntityWithMapStruct() {
+        return bookMapper.toEntity(bookModel);
+    }
+
+    @Benchmark
+    public List<BookModel> pageWithModelMapper() {
+        return page.stream()
+                .map(entity -> modelMapper.map(entity, BookModel.class))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<BookModel> pageWithMapStruct() {
+        return bookMapper.toModels(page);
+    }
+
+    @Benchmark
+    public Loan loanWithModelMapperPerRequest() {
+        return new ModelMapper().map(loanModel, Loan.class);
+    }
+
+    @Benchmark
+    public Loan loanWithMapStruct() {
+        return loanMapper.toEntity(loanModel, book);
+    }
+
+    private static Book createBook(long id) {
+        return Book.builder()
+                .id(id)
+                .title("The Adventures of Iago " + id)
+                .author("Iago")
+                .isbn(String.valueOf(id))
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iagosaito.libraryapi.api.dto.BookModel;
+import com.iagosaito.libraryapi.api.dto.BookPageModel;
+import com.iagosaito.libraryapi.core.BinaryFormatConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding a page of 1,000 books, as {@code GET /api/books} answers it: the serialized
+ * {@code Page} the api used to return and the slim {@link BookPageModel} as JSON, CBOR and
+ * Smile, each plain and gzipped as the server compresses them. Setup prints the bytes each one
+ * puts on the wire.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar BookPageSerializationBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookPageSerializationBenchmark {
+
+    private static final int PAGE_SIZE = 1_000;
+
+    private static final int AUTHORS = 50;
+
+    @Param({"page-json", "json", "cbor", "smile"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+
+    private Object page;
+
+    @Setup
+    public void setup() throws IOException {
+        List<BookModel> books = new ArrayList<>(PAGE_SIZE);
+        for (long id = 1; id <= PAGE_SIZE; id++) {
+            books.add(BookModel.builder()
+                    .id(id)
+                    .title("The Adventures of Iago, volume " + id)
+                    .author("Author " + id % AUTHORS)
+                    .isbn(String.valueOf(9780000000000L + id * 7919))
+                    .build());
+        }
+
+        switch (format) {
+            case "page-json":
+                objectMapper = Jackson2ObjectMapperBuilder.json().build();
+                page = new PageImpl<>(books, PageRequest.of(0, PAGE_SIZE), 100_000);
+                break;
+            case "json":
+                objectMapper = Jackson2ObjectMapperBuilder.json().build();
+                break;
+            case "cbor":
+                objectMapper = BinaryFormatConfig.cborObjectMapper(Jackson2ObjectMapperBuilder.json());
+                break;
+            case "smile":
+                objectMapper = BinaryFormatConfig.smileObjectMapper(Jackson2ObjectMapperBuilder.json());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+
+        if (page == null) {
+            page = BookPageModel.builder()
+                    .content(books)
+                    .number(0)
+                    .size(PAGE_SIZE)
+                    .totalElements(100_000)
+                    .totalPages(100)
+                .build();
+        }
+
+        System.out.printf("%n%s: %,d bytes, %,d gzipped%n", format, serialize().length, serializeGzipped().length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serializeGzipped() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, page);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,55 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code BookServiceImpl.save}: the isbn existence check followed by the insert, always with a new isbn.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookSaveBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+
+    private BookService bookService;
+
+    private final AtomicLong isbnSequence = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        context = LibraryContext.start();
+        LibraryContext.seedBooks(context, rows);
+
+        bookService = context.getBean(BookService.class);
+        isbnSequence.set(rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Book save() {
+        long isbn = isbnSequence.incrementAndGet();
+
+        return bookService.save(Book.builder()
+                .title("The Adventures of Book " + isbn)
+                .author("Iago Saito")
+                .isbn(String.valueOf(isbn))
+                .build());
+    }
+}
@@ -0,0 +1,82 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.service.BookSearchService;
+import com.iagosaito.libraryapi.domain.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CONTAINING search behind {@code GET /api/books} against the Lucene index behind
+ * {@code GET /api/books/search}, for the same terms over the same catalog.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookSearchBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+
+    private BookService bookService;
+
+    private BookSearchService bookSearchService;
+
+    private final Pageable firstPage = PageRequest.of(0, 20);
+
+    @Setup
+    public void setup() {
+        context = LibraryContext.start();
+        LibraryContext.seedBooks(context, rows);
+
+        bookService = context.getBean(BookService.class);
+        bookSearchService = context.getBean(BookSearchService.class);
+        bookSearchService.reindex();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Book> likeByTitle() {
+        return bookService.filter(Book.builder().title("book 424242").build(), firstPage);
+    }
+
+    @Benchmark
+    public List<Book> luceneByTitle() {
+        return bookSearchService.search("book 424242", 20);
+    }
+
+    @Benchmark
+    public Page<Book> likeByAuthor() {
+        return bookService.filter(Book.builder().author("author 42").build(), firstPage);
+    }
+
+    @Benchmark
+    public List<Book> luceneByAuthor() {
+        return bookSearchService.search("author 42", 20);
+    }
+
+    @Benchmark
+    public Page<Book> likeWithoutMatches() {
+        return bookService.filter(Book.builder().title("no such title").build(), firstPage);
+    }
+
+    @Benchmark
+    public List<Book> luceneWithoutMatches() {
+        return bookSearchService.search("no such title", 20);
+    }
+}
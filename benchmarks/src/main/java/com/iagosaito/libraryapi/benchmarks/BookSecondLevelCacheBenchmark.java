@@ -0,0 +1,94 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.service.BookService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeat reads of a hot set of books by id and by ISBN, with and without the second-level cache.
+ * Every iteration prints the statements each read sent to the database and the second-level cache
+ * hits, from the Hibernate statistics.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookSecondLevelCacheBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    private static final int HOT_BOOKS = 1_000;
+
+    @Param({"true", "false"})
+    private boolean cached;
+
+    private ConfigurableApplicationContext context;
+
+    private BookService bookService;
+
+    private List<Long> hotIds;
+
+    private List<String> hotIsbns;
+
+    private Statistics statistics;
+
+    private long reads;
+
+    @Setup
+    public void setup() {
+        context = LibraryContext.start("library.jpa.second-level-cache.enabled=" + cached);
+        LibraryContext.seedBooks(context, ROWS);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        hotIds = jdbcTemplate.queryForList("SELECT id FROM book ORDER BY id LIMIT ?", Long.class, HOT_BOOKS);
+        hotIsbns = jdbcTemplate.queryForList("SELECT isbn FROM book ORDER BY id LIMIT ?", String.class, HOT_BOOKS);
+
+        bookService = context.getBean(BookService.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounts() {
+        statistics.clear();
+        reads = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCounts() {
+        long statements = statistics.getPrepareStatementCount();
+
+        System.out.printf("%n%d reads, %.3f statements per read, %d cache hits, %d natural-id cache hits%n",
+                reads, reads == 0 ? 0.0 : (double) statements / reads,
+                statistics.getSecondLevelCacheHitCount(), statistics.getNaturalIdCacheHitCount());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Book> findById() {
+        reads++;
+        return bookService.findById(hotIds.get(ThreadLocalRandom.current().nextInt(HOT_BOOKS)));
+    }
+
+    @Benchmark
+    public Optional<Book> findByIsbn() {
+        reads++;
+        return bookService.findByIsbn(hotIsbns.get(ThreadLocalRandom.current().nextInt(HOT_BOOKS)));
+    }
+}
@@ -0,0 +1,127 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import com.iagosaito.libraryapi.LibraryApiApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Boots the api against a private in-memory H2 database, so each trial starts from an empty
+ * catalog.
+ */
+final class LibraryContext {
+
+    private static final int SEED_BATCH_SIZE = 5_000;
+
+    private LibraryContext() {
+    }
+
+    /**
+     * Boots the api without a web server. {@code properties} are passed as command line arguments, so
+     * they win over application.properties.
+     */
+    static ConfigurableApplicationContext start(String... properties) {
+        return builder(WebApplicationType.NONE)
+                .run(Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    /**
+     * Boots the api with its web server on a random port, on the servlet stack or, under the
+     * "reactive" profile, on WebFlux.
+     */
+    static ConfigurableApplicationContext serve(WebApplicationType webApplicationType, String... profiles) {
+        return builder(webApplicationType)
+                .profiles(profiles)
+                .properties("server.port=0")
+                .run();
+    }
+
+    static int port(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    private static SpringApplicationBuilder builder(WebApplicationType webApplicationType) {
+        return new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(webApplicationType)
+                .logStartupInfo(false)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.open-in-view=false",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN");
+    }
+
+    /**
+     * Inserts {@code rows} books straight through JDBC. Every book has a distinct isbn ({@code 1..rows})
+     * and title ({@code "The Adventures of Book <n>"}); authors cycle through a thousand names.
+     */
+    static void seedBooks(ConfigurableApplicationContext context, int rows) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        for (int start = 1; start <= rows; start += SEED_BATCH_SIZE) {
+            int first = start;
+            int size = Math.min(SEED_BATCH_SIZE, rows - start + 1);
+
+            jdbcTemplate.batchUpdate("INSERT INTO book (title, author, isbn) VALUES (?, ?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            int n = first + i;
+                            ps.setString(1, "The Adventures of Book " + n);
+                            ps.setString(2, "Author " + (n % 1_000));
+                            ps.setString(3, String.valueOf(n));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Opens one loan per seeded book, taken {@code daysAgo} days ago, spread evenly over
+     * {@code customers} customer emails.
+     */
+    static void seedOpenLoans(ConfigurableApplicationContext context, int customers, int daysAgo) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        long firstId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM book", Long.class);
+        long lastId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM book", Long.class);
+        long step = (lastId - firstId) / 100 + 1;
+
+        for (long from = firstId; from <= lastId; from += step) {
+            jdbcTemplate.update(
+                    "INSERT INTO loan (customer, customer_email, book_id, local_date, returned) "
+                            + "SELECT 'Customer ' || MOD(id, ?), 'customer' || MOD(id, ?) || '@library.com', id, "
+                            + "DATEADD('DAY', ?, CURRENT_DATE), FALSE FROM book WHERE id >= ? AND id < ?",
+                    customers, customers, -daysAgo, from, from + step);
+        }
+    }
+
+    /**
+     * Writes {@code rounds} returned loans per seeded book, spread evenly over {@code customers}
+     * customers and over the last ten years, so each customer ends up with
+     * {@code books * rounds / customers} loans.
+     */
+    static void seedLoanHistory(ConfigurableApplicationContext context, int customers, int rounds) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        for (int round = 0; round < rounds; round++) {
+            jdbcTemplate.update(
+                    "INSERT INTO loan (customer, customer_email, book_id, local_date, returned) "
+                            + "SELECT 'Customer ' || MOD(id + ?, ?), 'customer' || MOD(id + ?, ?) || '@library.com', id, "
+                            + "DATEADD('DAY', -MOD(id * 7 + ?, 3650), CURRENT_DATE), TRUE FROM book",
+                    round, customers, round, customers, round);
+        }
+    }
+}
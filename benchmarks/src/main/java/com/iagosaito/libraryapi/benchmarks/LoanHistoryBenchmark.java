@@ -0,0 +1,82 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryEntry;
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryFilter;
+import com.iagosaito.libraryapi.domain.repository.LoanKeyset;
+import com.iagosaito.libraryapi.domain.service.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of a single customer's loan history, 10k loans deep, at the start and near the end of
+ * it. Without the {@code (customer, local_date, loan_id)} index every page scans and sorts the
+ * customer's loans; with it a page reads only its own rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanHistoryBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int CUSTOMERS = 10;
+
+    private static final int BOOKS = 20_000;
+
+    private static final int ROUNDS = 5;
+
+    @Param({"0", "499"})
+    private int page;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private ConfigurableApplicationContext context;
+
+    private LoanService loanService;
+
+    private final LoanHistoryFilter byCustomer = LoanHistoryFilter.builder().customer("Customer 3").build();
+
+    private LoanKeyset keyset;
+
+    @Setup
+    public void setup() {
+        context = LibraryContext.start();
+        LibraryContext.seedBooks(context, BOOKS);
+        LibraryContext.seedLoanHistory(context, CUSTOMERS, ROUNDS);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        if (!indexed) {
+            jdbcTemplate.execute("DROP INDEX ix_loan_customer_date");
+        }
+        jdbcTemplate.execute("ANALYZE");
+        // H2 would otherwise hand back the cached result of the identical previous query
+        jdbcTemplate.execute("SET OPTIMIZE_REUSE_RESULTS 0");
+
+        loanService = context.getBean(LoanService.class);
+        keyset = LoanKeyset.first();
+
+        for (int i = 0; i < page; i++) {
+            List<LoanHistoryEntry> previous = loanService.findHistory(byCustomer, keyset, PAGE_SIZE).getContent();
+            keyset = keyset.after(previous.get(previous.size() - 1));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Slice<LoanHistoryEntry> history() {
+        return loanService.findHistory(byCustomer, keyset, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,76 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import com.iagosaito.libraryapi.domain.exception.BusinessException;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.service.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code LoanServiceImpl.save} with its {@code existsByBookAndNotReturned} guard. {@code loanAndReturn} lends
+ * and returns books round-robin, so the loan history of every book keeps growing during the run;
+ * {@code rejectAlreadyLoaned} measures the conflict path against a book that is never returned.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanSaveBenchmark {
+
+    @Param({"1000"})
+    private int books;
+
+    private ConfigurableApplicationContext context;
+
+    private LoanService loanService;
+
+    private List<Book> catalog;
+
+    private Book loanedBook;
+
+    private final AtomicInteger nextBook = new AtomicInteger();
+
+    @Setup
+    public void setup() {
+        context = LibraryContext.start();
+        LibraryContext.seedBooks(context, books + 1);
+
+        loanService = context.getBean(LoanService.class);
+        catalog = context.getBean(BookRepository.class).findAll();
+
+        loanedBook = catalog.remove(catalog.size() - 1);
+        loanService.save(Loan.builder().book(loanedBook).customer("Iago Saito").build());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Loan loanAndReturn() {
+        Book book = catalog.get(Math.floorMod(nextBook.getAndIncrement(), catalog.size()));
+
+        Loan loan = loanService.save(Loan.builder().book(book).customer("Iago Saito").build());
+        loan.setReturned(true);
+
+        return loanService.update(loan);
+    }
+
+    @Benchmark
+    public Object rejectAlreadyLoaned() {
+        try {
+            return loanService.save(Loan.builder().book(loanedBook).customer("Iago Saito").build());
+        } catch (BusinessException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import com.iagosaito.libraryapi.domain.repository.LoanRepository;
+import com.iagosaito.libraryapi.domain.service.EmailServiceImpl;
+import com.iagosaito.libraryapi.domain.service.ScheduleLoanService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One full run of {@code ScheduleLoanService.notifyLoanDebt} over a catalog where every book is
+ * on an overdue loan. Notices go through the real {@link EmailServiceImpl} queue, whose transport
+ * parks for {@code sendMicros} per batch to stand in for an SMTP round trip, so a run includes the
+ * time the scan is held back by a full queue.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OverdueLoanScanBenchmark {
+
+    @Param({"1000000"})
+    private int loans;
+
+    @Param({"100000"})
+    private int customers;
+
+    @Param({"200"})
+    private int sendMicros;
+
+    private ConfigurableApplicationContext context;
+
+    private EmailServiceImpl emailService;
+
+    private ScheduleLoanService scheduleLoanService;
+
+    @Setup
+    public void setup() {
+        context = LibraryContext.start();
+        LibraryContext.seedBooks(context, loans);
+        LibraryContext.seedOpenLoans(context, customers, 30);
+
+        emailService = new EmailServiceImpl(batch -> LockSupport.parkNanos(sendMicros * 1_000L),
+                new SimpleMeterRegistry(), 10_000, 50, 2, 5, Duration.ofMillis(200), Duration.ofSeconds(1));
+        emailService.start();
+
+        scheduleLoanService = new ScheduleLoanService(context.getBean(LoanRepository.class), emailService,
+                new SimpleMeterRegistry(), 7, 1_000);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        emailService.stop();
+        context.close();
+    }
+
+    @Benchmark
+    public void notifyLoanDebt() {
+        scheduleLoanService.notifyLoanDebt();
+    }
+}
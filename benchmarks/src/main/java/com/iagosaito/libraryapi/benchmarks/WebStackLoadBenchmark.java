@@ -0,0 +1,95 @@
+package com.iagosaito.libraryapi.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The servlet stack (Tomcat + JPA) against the "reactive" profile (Netty + R2DBC) under many
+ * concurrent HTTP clients. Throughput shows how far each stack gets before queueing, the sampled
+ * run gives the latency percentiles (look at p0.99).
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar WebStackLoadBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Threads(256)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebStackLoadBenchmark {
+
+    @Param({"servlet", "reactive"})
+    private String stack;
+
+    @Param({"10000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private String baseUri;
+
+    private long[] ids;
+
+    @Setup
+    public void setup() {
+        context = "reactive".equals(stack)
+                ? LibraryContext.serve(WebApplicationType.REACTIVE, "reactive")
+                : LibraryContext.serve(WebApplicationType.SERVLET);
+        LibraryContext.seedBooks(context, rows);
+
+        ids = context.getBean(JdbcTemplate.class)
+                .queryForList("SELECT id FROM book", Long.class)
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+
+        baseUri = "http://localhost:" + LibraryContext.port(context) + "/api/books";
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int findById() throws IOException, InterruptedException {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+
+        return get(baseUri + "/" + id);
+    }
+
+    @Benchmark
+    public int filter() throws IOException, InterruptedException {
+        int author = ThreadLocalRandom.current().nextInt(1_000);
+
+        return get(baseUri + "?author=Author%20" + author + "&size=20");
+    }
+
+    private int get(String uri) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(URI.create(uri)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(uri + " answered " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
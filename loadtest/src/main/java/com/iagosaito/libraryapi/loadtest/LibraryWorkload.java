@@ -0,0 +1,268 @@
+package com.iagosaito.libraryapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Library traffic against the api over HTTP. Loans take books from a pool of the ones nobody holds
+ * and returns put them back, so loans are only rejected when the api disagrees with the pool.
+ * When there is no open loan to return, a loan is made instead, and the other way around.
+ */
+final class LibraryWorkload {
+
+    private static final int AUTHORS = 500;
+
+    private static final int IMPORT_CHUNK = 1_000;
+
+    private static final int SCAN_PAGE = 1_000;
+
+    private final HttpClient httpClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String baseUri;
+
+    private final Duration timeout;
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong inserted = new AtomicLong();
+
+    private final Queue<String> availableIsbns = new ConcurrentLinkedQueue<>();
+
+    private final Queue<OpenLoan> openLoans = new ConcurrentLinkedQueue<>();
+
+    private long[] bookIds;
+
+    LibraryWorkload(String baseUri, Duration timeout) {
+        this.baseUri = baseUri;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Imports books until the catalog holds {@code books} of them, then reads every id and ISBN back
+     * so the run only asks for books that exist.
+     */
+    void seed(int books) throws IOException, InterruptedException {
+        long present = get("/api/books?size=1").path("totalElements").asLong();
+
+        for (long next = present; next < books; next += IMPORT_CHUNK) {
+            StringBuilder ndjson = new StringBuilder();
+            for (long n = next; n < Math.min(next + IMPORT_CHUNK, books); n++) {
+                ndjson.append(book("Load Book " + n, "load-" + n).toString())
+                        .append('\n');
+            }
+
+            send(HttpRequest.newBuilder(uri("/api/books/import"))
+                    .header("Content-Type", "application/x-ndjson")
+                    .POST(HttpRequest.BodyPublishers.ofString(ndjson.toString())));
+        }
+
+        List<Long> ids = new ArrayList<>();
+        List<String> isbns = new ArrayList<>();
+        String cursor = null;
+        do {
+            JsonNode slice = get("/api/books?paging=keyset&size=" + SCAN_PAGE
+                    + (cursor == null ? "" : "&cursor=" + encode(cursor)));
+
+            for (JsonNode book : slice.path("content")) {
+                ids.add(book.path("id").asLong());
+                isbns.add(book.path("isbn").asText());
+            }
+            cursor = slice.path("next").isTextual() ? slice.path("next").asText() : null;
+        } while (cursor != null);
+
+        bookIds = ids.stream().mapToLong(Long::longValue).toArray();
+        Collections.shuffle(isbns);
+        availableIsbns.addAll(isbns);
+    }
+
+    int catalogSize() {
+        return bookIds.length;
+    }
+
+    CompletableFuture<Sample> execute(Operation operation) {
+        switch (operation) {
+            case FILTER:
+                return filter();
+            case FIND_BY_ID:
+                return findById();
+            case LOAN:
+                return availableIsbns.isEmpty() && !openLoans.isEmpty() ? returnLoan() : loan();
+            case RETURN:
+                return openLoans.isEmpty() ? loan() : returnLoan();
+            case INSERT:
+                return insert();
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private CompletableFuture<Sample> filter() {
+        String author = "Load Author " + ThreadLocalRandom.current().nextInt(AUTHORS);
+
+        return sendAsync(Operation.FILTER, HttpRequest.newBuilder(uri("/api/books?size=20&author=" + encode(author))));
+    }
+
+    private CompletableFuture<Sample> findById() {
+        long id = bookIds[ThreadLocalRandom.current().nextInt(bookIds.length)];
+
+        return sendAsync(Operation.FIND_BY_ID, HttpRequest.newBuilder(uri("/api/books/" + id)));
+    }
+
+    private CompletableFuture<Sample> loan() {
+        String isbn = availableIsbns.poll();
+        if (isbn == null) {
+            return findById();
+        }
+
+        String customer = "Customer " + ThreadLocalRandom.current().nextInt(1_000);
+        String body = json("isbn", isbn, "customer", customer, "customerEmail", customer.replace(' ', '.') + "@library.com");
+
+        return sendAsync(Operation.LOAN, HttpRequest.newBuilder(uri("/api/loans"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)))
+                .whenComplete((sample, error) -> {
+                    if (sample != null && sample.isSuccess()) {
+                        openLoans.add(new OpenLoan(Long.parseLong(sample.body.trim()), isbn));
+                    } else if (sample == null || sample.isError()) {
+                        availableIsbns.add(isbn);
+                    }
+                });
+    }
+
+    private CompletableFuture<Sample> returnLoan() {
+        OpenLoan loan = openLoans.poll();
+        if (loan == null) {
+            return loan();
+        }
+
+        return sendAsync(Operation.RETURN, HttpRequest.newBuilder(uri("/api/loans/" + loan.loanId))
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"returned\":true}")))
+                .whenComplete((sample, error) -> {
+                    if (sample != null && sample.isSuccess()) {
+                        availableIsbns.add(loan.isbn);
+                    } else if (sample == null || sample.isError()) {
+                        openLoans.add(loan);
+                    }
+                });
+    }
+
+    private CompletableFuture<Sample> insert() {
+        String isbn = "load-" + runId + "-" + inserted.incrementAndGet();
+        String body = book("Load Book " + isbn, isbn).toString();
+
+        return sendAsync(Operation.INSERT, HttpRequest.newBuilder(uri("/api/books"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)))
+                .whenComplete((sample, error) -> {
+                    if (sample != null && sample.isSuccess()) {
+                        availableIsbns.add(isbn);
+                    }
+                });
+    }
+
+    private CompletableFuture<Sample> sendAsync(Operation operation, HttpRequest.Builder request) {
+        return httpClient.sendAsync(request.timeout(timeout).build(), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> new Sample(operation, response.statusCode(), response.body()));
+    }
+
+    private JsonNode get(String path) throws IOException, InterruptedException {
+        return objectMapper.readTree(send(HttpRequest.newBuilder(uri(path))));
+    }
+
+    private String send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request.timeout(timeout).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(request.build().uri() + " answered " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private ObjectNode book(String title, String isbn) {
+        return objectMapper.createObjectNode()
+                .put("title", title)
+                .put("author", "Load Author " + Math.floorMod(isbn.hashCode(), AUTHORS))
+                .put("isbn", isbn);
+    }
+
+    private String json(String... fields) {
+        ObjectNode node = objectMapper.createObjectNode();
+        for (int i = 0; i < fields.length; i += 2) {
+            node.put(fields[i], fields[i + 1]);
+        }
+        return node.toString();
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUri + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An answered request. 4xx are the api turning the request down, which under this workload means
+     * the books or loans it was built from went stale; 5xx are errors.
+     */
+    static final class Sample {
+
+        final Operation operation;
+
+        final int status;
+
+        final String body;
+
+        Sample(Operation operation, int status, String body) {
+            this.operation = operation;
+            this.status = status;
+            this.body = body;
+        }
+
+        boolean isSuccess() {
+            return status / 100 == 2;
+        }
+
+        boolean isError() {
+            return status / 100 == 5;
+        }
+    }
+
+    private static final class OpenLoan {
+
+        final long loanId;
+
+        final String isbn;
+
+        OpenLoan(long loanId, String isbn) {
+            this.loanId = loanId;
+            this.isbn = isbn;
+        }
+    }
+}
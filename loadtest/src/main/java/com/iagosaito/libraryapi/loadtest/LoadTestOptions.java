@@ -0,0 +1,149 @@
+package com.iagosaito.libraryapi.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of the load test, as {@code --name=value} pairs. Anything it does not know is handed
+ * to the api it boots, so {@code --library.jpa.second-level-cache.enabled=false} and the like work
+ * as they do on the api itself.
+ */
+final class LoadTestOptions {
+
+    /**
+     * Requests started per second, whether or not earlier ones have answered.
+     */
+    int rate = 200;
+
+    Duration warmup = Duration.ofSeconds(15);
+
+    Duration duration = Duration.ofSeconds(60);
+
+    Duration timeout = Duration.ofSeconds(10);
+
+    /**
+     * Books in the catalog before the run starts; missing ones are imported.
+     */
+    int books = 10_000;
+
+    /**
+     * Requests still waiting for an answer beyond this are dropped instead of sent, so an api that
+     * stops answering does not take the generator down with it.
+     */
+    int maxInFlight = 2_000;
+
+    /**
+     * "mem" for a fresh in-memory H2 database, "file" for one under target/loadtest that is wiped
+     * first, so the run pays for real disk writes.
+     */
+    String db = "mem";
+
+    /**
+     * Base uri of an api already running elsewhere, instead of booting one in this JVM.
+     */
+    String target;
+
+    Path result = Paths.get("target", "loadtest-result.json");
+
+    Path baseline;
+
+    /**
+     * How much worse than the baseline the p99 or the throughput of an endpoint may get.
+     */
+    double tolerance = 0.2;
+
+    Map<Operation, Integer> mix = parseMix("filter:35,findById:40,loan:10,return:10,insert:5");
+
+    List<String> apiArguments = new ArrayList<>();
+
+    private LoadTestOptions() {
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+
+            switch (name) {
+                case "rate":
+                    options.rate = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    options.warmup = Duration.ofSeconds(Long.parseLong(value));
+                    break;
+                case "duration":
+                    options.duration = Duration.ofSeconds(Long.parseLong(value));
+                    break;
+                case "timeout":
+                    options.timeout = Duration.ofSeconds(Long.parseLong(value));
+                    break;
+                case "books":
+                    options.books = Integer.parseInt(value);
+                    break;
+                case "max-in-flight":
+                    options.maxInFlight = Integer.parseInt(value);
+                    break;
+                case "db":
+                    if (!"mem".equals(value) && !"file".equals(value)) {
+                        throw new IllegalArgumentException("--db must be mem or file");
+                    }
+                    options.db = value;
+                    break;
+                case "target":
+                    options.target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    break;
+                case "result":
+                    options.result = Paths.get(value);
+                    break;
+                case "baseline":
+                    options.baseline = Paths.get(value);
+                    break;
+                case "tolerance":
+                    options.tolerance = Double.parseDouble(value);
+                    break;
+                case "mix":
+                    options.mix = parseMix(value);
+                    break;
+                default:
+                    options.apiArguments.add(arg);
+            }
+        }
+
+        if (options.rate < 1) {
+            throw new IllegalArgumentException("--rate must be at least 1");
+        }
+        return options;
+    }
+
+    /**
+     * {@code filter:35,findById:40,...}; operations left out are not sent.
+     */
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+        for (String entry : value.split(",")) {
+            String[] weight = entry.trim().split(":");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight in --mix, got " + entry);
+            }
+            mix.put(Operation.fromName(weight[0]), Integer.parseInt(weight[1]));
+        }
+
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("--mix needs at least one positive weight");
+        }
+        return mix;
+    }
+}
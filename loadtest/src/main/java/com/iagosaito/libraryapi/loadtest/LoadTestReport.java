@@ -0,0 +1,187 @@
+package com.iagosaito.libraryapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint outcome of one measured run. Latencies are taken from the moment a request was due,
+ * not from when it was actually sent, so a generator or api that falls behind shows up in the
+ * percentiles instead of quietly sending less. Every answered request counts towards the latency,
+ * including 4xx and 5xx; requests that failed without an answer (timeouts, refused connections)
+ * only count as errors.
+ */
+final class LoadTestReport {
+
+    /**
+     * Latency changes under a millisecond are noise at this scale and never count as regressions.
+     */
+    private static final double LATENCY_FLOOR_MILLIS = 1.0;
+
+    private final Map<Operation, Endpoint> endpoints = new EnumMap<>(Operation.class);
+
+    private final Duration duration;
+
+    private volatile long maxScheduleLagNanos;
+
+    LoadTestReport(Duration duration) {
+        this.duration = duration;
+        for (Operation operation : Operation.values()) {
+            endpoints.put(operation, new Endpoint());
+        }
+    }
+
+    void answered(LibraryWorkload.Sample sample, long latencyNanos) {
+        Endpoint endpoint = endpoints.get(sample.operation);
+        endpoint.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+
+        if (sample.isSuccess()) {
+            endpoint.successes.increment();
+        } else if (sample.isError()) {
+            endpoint.errors.increment();
+        } else {
+            endpoint.rejected.increment();
+        }
+    }
+
+    void failed(Operation operation) {
+        endpoints.get(operation).errors.increment();
+    }
+
+    void dropped(Operation operation) {
+        endpoints.get(operation).dropped.increment();
+    }
+
+    /**
+     * How late the generator itself started a request. Above a few milliseconds the machine running
+     * it is saturated and the percentiles say more about it than about the api.
+     */
+    void scheduleLag(long lagNanos) {
+        if (lagNanos > maxScheduleLagNanos) {
+            maxScheduleLagNanos = lagNanos;
+        }
+    }
+
+    long failures() {
+        return endpoints.values().stream()
+                .mapToLong(endpoint -> endpoint.errors.sum() + endpoint.dropped.sum())
+                .sum();
+    }
+
+    void print(PrintStream out) {
+        out.printf("%n%-24s %9s %8s %9s %7s %8s %8s %8s %8s %8s%n",
+                "endpoint", "requests", "req/s", "rejected", "errors", "dropped", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        endpoints.forEach((operation, endpoint) -> {
+            Histogram latency = endpoint.latency;
+            if (latency.getTotalCount() == 0 && endpoint.errors.sum() == 0 && endpoint.dropped.sum() == 0) {
+                return;
+            }
+
+            out.printf("%-24s %9d %8.1f %9d %7d %8d %8.2f %8.2f %8.2f %8.2f%n",
+                    operation.getEndpoint(), latency.getTotalCount(), endpoint.throughput(duration),
+                    endpoint.rejected.sum(), endpoint.errors.sum(), endpoint.dropped.sum(),
+                    millis(latency, 50), millis(latency, 99), millis(latency, 99.9), millis(latency, 100));
+        });
+
+        out.printf("%nslowest request start: %.2f ms behind schedule%n", maxScheduleLagNanos / 1_000_000.0);
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> operations = new LinkedHashMap<>();
+
+        endpoints.forEach((operation, endpoint) -> {
+            Histogram latency = endpoint.latency;
+
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("endpoint", operation.getEndpoint());
+            values.put("requests", latency.getTotalCount());
+            values.put("throughput", endpoint.throughput(duration));
+            values.put("rejected", endpoint.rejected.sum());
+            values.put("errors", endpoint.errors.sum());
+            values.put("dropped", endpoint.dropped.sum());
+            values.put("p50", millis(latency, 50));
+            values.put("p99", millis(latency, 99));
+            values.put("p999", millis(latency, 99.9));
+            values.put("max", millis(latency, 100));
+            operations.put(operation.getName(), values);
+        });
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("durationSeconds", duration.getSeconds());
+        report.put("maxScheduleLagMillis", maxScheduleLagNanos / 1_000_000.0);
+        report.put("operations", operations);
+        return report;
+    }
+
+    /**
+     * Endpoints whose p99 grew or whose throughput shrank by more than {@code tolerance} against the
+     * same endpoint in {@code baseline}, an earlier result file. Endpoints the baseline did not send
+     * are skipped.
+     */
+    List<String> regressions(JsonNode baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+
+        endpoints.forEach((operation, endpoint) -> {
+            JsonNode before = baseline.path("operations").path(operation.getName());
+            if (before.path("requests").asLong() == 0 || endpoint.latency.getTotalCount() == 0) {
+                return;
+            }
+
+            double p99 = millis(endpoint.latency, 99);
+            double baselineP99 = before.path("p99").asDouble();
+            if (p99 > baselineP99 * (1 + tolerance) && p99 - baselineP99 > LATENCY_FLOOR_MILLIS) {
+                regressions.add(String.format("%s p99 went from %.2f ms to %.2f ms",
+                        operation.getEndpoint(), baselineP99, p99));
+            }
+
+            double throughput = endpoint.throughput(duration);
+            double baselineThroughput = before.path("throughput").asDouble();
+            if (throughput < baselineThroughput * (1 - tolerance)) {
+                regressions.add(String.format("%s throughput went from %.1f to %.1f req/s",
+                        operation.getEndpoint(), baselineThroughput, throughput));
+            }
+        });
+
+        return regressions;
+    }
+
+    private static double millis(Histogram latency, double percentile) {
+        long micros = percentile >= 100 ? latency.getMaxValue() : latency.getValueAtPercentile(percentile);
+
+        return micros / 1_000.0;
+    }
+
+    private static final class Endpoint {
+
+        /**
+         * Microseconds, three significant digits, growing as needed.
+         */
+        final Histogram latency = new ConcurrentHistogram(3);
+
+        final LongAdder successes = new LongAdder();
+
+        final LongAdder rejected = new LongAdder();
+
+        final LongAdder errors = new LongAdder();
+
+        final LongAdder dropped = new LongAdder();
+
+        /**
+         * Requests the api completed successfully per second of the run.
+         */
+        double throughput(Duration duration) {
+            return successes.sum() / (double) duration.getSeconds();
+        }
+    }
+}
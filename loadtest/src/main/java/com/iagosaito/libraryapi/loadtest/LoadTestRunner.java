@@ -0,0 +1,160 @@
+package com.iagosaito.libraryapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iagosaito.libraryapi.LibraryApiApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Entry point of the load test jar. Boots the api in this JVM (or points at one already running with
+ * {@code --target}), fills the catalog, warms up, then replays the mix at a constant arrival rate and
+ * prints throughput and latency percentiles per endpoint. The result is written as JSON; handing an
+ * earlier one in as {@code --baseline} fails the run when an endpoint got slower.
+ *
+ * <pre>
+ * mvn install -DskipTests                        # in the api project
+ * mvn -f loadtest/pom.xml package
+ * java -jar loadtest/target/loadtest.jar --rate=200 --duration=60
+ * java -jar loadtest/target/loadtest.jar --db=file --baseline=release-1.2.json
+ * java -jar loadtest/target/loadtest.jar --mix=filter:80,findById:20 --library.jpa.second-level-cache.enabled=false
+ * java -jar loadtest/target/loadtest.jar --target=http://localhost:8080 --books=0
+ * </pre>
+ *
+ * The in-JVM api and the generator share the machine; for numbers to compare across releases, keep
+ * the machine and options the same, and check that the schedule lag stays low.
+ */
+public class LoadTestRunner {
+
+    private static final Path FILE_DB_DIRECTORY = Paths.get("target", "loadtest");
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        ConfigurableApplicationContext context = null;
+        String baseUri = options.target;
+        if (baseUri == null) {
+            context = boot(options);
+            baseUri = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        int status;
+        try {
+            status = run(options, baseUri);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(status);
+    }
+
+    private static int run(LoadTestOptions options, String baseUri) throws IOException, InterruptedException {
+        LibraryWorkload workload = new LibraryWorkload(baseUri, options.timeout);
+        workload.seed(options.books);
+        if (workload.catalogSize() == 0) {
+            throw new IllegalStateException("The catalog at " + baseUri + " is empty, seed it with --books");
+        }
+
+        System.out.printf("%s: %d books, %d req/s of %s%n", baseUri, workload.catalogSize(), options.rate,
+                options.mix.entrySet().stream()
+                        .map(weight -> weight.getKey().getName() + ":" + weight.getValue())
+                        .collect(Collectors.joining(",")));
+
+        OpenModelDriver driver = new OpenModelDriver(workload, options.mix, options.rate, options.maxInFlight,
+                options.timeout);
+
+        if (!options.warmup.isZero()) {
+            System.out.printf("warming up for %d s%n", options.warmup.getSeconds());
+            driver.run(options.warmup);
+        }
+
+        System.out.printf("measuring for %d s%n", options.duration.getSeconds());
+        LoadTestReport report = driver.run(options.duration);
+        report.print(System.out);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rate", options.rate);
+        result.put("mix", options.mix.entrySet().stream()
+                .collect(Collectors.toMap(weight -> weight.getKey().getName(), Map.Entry::getValue,
+                        (a, b) -> a, LinkedHashMap::new)));
+        result.putAll(report.toMap());
+
+        if (options.result.getParent() != null) {
+            Files.createDirectories(options.result.getParent());
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(options.result.toFile(), result);
+        System.out.printf("result written to %s%n", options.result);
+
+        int status = 0;
+        if (report.failures() > 0) {
+            System.out.printf("%n%d requests failed or were dropped%n", report.failures());
+            status = 1;
+        }
+
+        if (options.baseline != null) {
+            JsonNode baseline = objectMapper.readTree(options.baseline.toFile());
+
+            if (baseline.path("rate").asInt() != options.rate
+                    || !objectMapper.valueToTree(result.get("mix")).equals(baseline.path("mix"))) {
+                System.out.printf("%nbaseline %s ran a different rate or mix, not comparing%n", options.baseline);
+                return 2;
+            }
+
+            List<String> regressions = report.regressions(baseline, options.tolerance);
+            if (regressions.isEmpty()) {
+                System.out.printf("%nno endpoint regressed more than %.0f%% against %s%n",
+                        options.tolerance * 100, options.baseline);
+            } else {
+                System.out.printf("%nregressions against %s:%n", options.baseline);
+                regressions.forEach(regression -> System.out.println("  " + regression));
+                status = 1;
+            }
+        }
+
+        return status;
+    }
+
+    /**
+     * The api on a random port with the production settings, bar the database. These go in as
+     * command line arguments, so they win over application.properties, and options the load test
+     * does not know are passed on the same way and win over these.
+     */
+    private static ConfigurableApplicationContext boot(LoadTestOptions options) {
+        String url;
+        if ("file".equals(options.db)) {
+            FileSystemUtils.deleteRecursively(FILE_DB_DIRECTORY.toFile());
+            url = "jdbc:h2:file:" + FILE_DB_DIRECTORY.toAbsolutePath().resolve("library");
+        } else {
+            url = "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1";
+        }
+
+        Map<String, String> arguments = new LinkedHashMap<>();
+        arguments.put("server.port", "0");
+        arguments.put("spring.datasource.url", url);
+        arguments.put("spring.main.banner-mode", "off");
+        arguments.put("logging.level.root", "WARN");
+        for (String argument : options.apiArguments) {
+            int equals = argument.indexOf('=');
+            arguments.put(argument.substring(2, equals), argument.substring(equals + 1));
+        }
+
+        return new SpringApplicationBuilder(LibraryApiApplication.class)
+                .logStartupInfo(false)
+                .run(arguments.entrySet().stream()
+                        .map(argument -> "--" + argument.getKey() + "=" + argument.getValue())
+                        .toArray(String[]::new));
+    }
+}
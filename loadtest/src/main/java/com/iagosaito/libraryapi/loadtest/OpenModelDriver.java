@@ -0,0 +1,84 @@
+package com.iagosaito.libraryapi.loadtest;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Starts requests at a constant rate, one every {@code 1s / rate}, whether or not the ones before
+ * have been answered, the way independent users arrive. A closed loop of clients waiting on their
+ * own answers would slow down with the api and hide exactly the queueing a release should not add.
+ */
+final class OpenModelDriver {
+
+    private final LibraryWorkload workload;
+
+    private final Operation[] schedule;
+
+    private final long intervalNanos;
+
+    private final int maxInFlight;
+
+    private final Duration drainTimeout;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenModelDriver(LibraryWorkload workload, Map<Operation, Integer> mix, int rate, int maxInFlight,
+                    Duration drainTimeout) {
+        this.workload = workload;
+        this.schedule = mix.entrySet().stream()
+                .flatMap(weight -> Collections.nCopies(weight.getValue(), weight.getKey()).stream())
+                .toArray(Operation[]::new);
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        this.maxInFlight = maxInFlight;
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * Runs the mix for {@code duration} and waits for the last answers before reporting.
+     */
+    LoadTestReport run(Duration duration) throws InterruptedException {
+        LoadTestReport report = new LoadTestReport(duration);
+
+        long start = System.nanoTime();
+        long requests = duration.toNanos() / intervalNanos;
+
+        for (long i = 0; i < requests; i++) {
+            long due = start + i * intervalNanos;
+
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            report.scheduleLag(System.nanoTime() - due);
+
+            Operation operation = schedule[ThreadLocalRandom.current().nextInt(schedule.length)];
+            if (inFlight.get() >= maxInFlight) {
+                report.dropped(operation);
+                continue;
+            }
+
+            inFlight.incrementAndGet();
+            workload.execute(operation).whenComplete((sample, error) -> {
+                long latency = System.nanoTime() - due;
+                if (sample != null) {
+                    report.answered(sample, latency);
+                } else {
+                    report.failed(operation);
+                }
+                inFlight.decrementAndGet();
+            });
+        }
+
+        long drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+
+        return report;
+    }
+}
@@ -0,0 +1,40 @@
+package com.iagosaito.libraryapi.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * The requests the load test sends, named as in {@code --mix}.
+ */
+enum Operation {
+
+    FILTER("filter", "GET /api/books"),
+    FIND_BY_ID("findById", "GET /api/books/{id}"),
+    LOAN("loan", "POST /api/loans"),
+    RETURN("return", "PATCH /api/loans/{id}"),
+    INSERT("insert", "POST /api/books");
+
+    private final String name;
+
+    private final String endpoint;
+
+    Operation(String name, String endpoint) {
+        this.name = name;
+        this.endpoint = endpoint;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    static Operation fromName(String name) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + name
+                        + ", expected one of " + Arrays.toString(Arrays.stream(values()).map(Operation::getName).toArray())));
+    }
+}
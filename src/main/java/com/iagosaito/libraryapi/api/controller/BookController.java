@@ -1,82 +1,241 @@
 package com.iagosaito.libraryapi.api.controller;
 
+import com.iagosaito.libraryapi.api.dto.BookAvailabilityModel;
 import com.iagosaito.libraryapi.api.dto.BookModel;
+import com.iagosaito.libraryapi.api.dto.BookPageModel;
+import com.iagosaito.libraryapi.api.dto.BookSliceModel;
+import com.iagosaito.libraryapi.api.mapper.BookMapper;
+import com.iagosaito.libraryapi.core.ConcurrencyLimited;
+import com.iagosaito.libraryapi.domain.exception.BusinessException;
 import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookKeyset;
+import com.iagosaito.libraryapi.domain.service.BookAvailabilityService;
+import com.iagosaito.libraryapi.domain.service.BookExportService;
+import com.iagosaito.libraryapi.domain.service.BookFileFormat;
+import com.iagosaito.libraryapi.domain.service.BookImportResult;
+import com.iagosaito.libraryapi.domain.service.BookImportService;
+import com.iagosaito.libraryapi.domain.service.BookSearchService;
 import com.iagosaito.libraryapi.domain.service.BookService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping(path = "/api/books")
 public class BookController {
 
+    private static final int MAX_SEARCH_LIMIT = 100;
+
+    private static final int MAX_AVAILABILITY_IDS = 500;
+
+    private static final String BOOK_MODIFIED = "Book was modified, reload it and try again";
+
     @Autowired
     private BookService bookService;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookExportService bookExportService;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private BookAvailabilityService bookAvailabilityService;
+
+    @Autowired
+    private BookMapper bookMapper;
 
     @PostMapping
+    @ConcurrencyLimited(ConcurrencyLimited.WRITES)
     @ResponseStatus(HttpStatus.CREATED)
     public BookModel save(@RequestBody @Valid BookModel bookModel) {
-        Book book = modelMapper.map(bookModel, Book.class);
+        Book book = bookMapper.toEntity(bookModel);
 
         book = bookService.save(book);
 
-        return modelMapper.map(book, BookModel.class);
+        return bookMapper.toModel(book);
+    }
+
+    @PostMapping(path = "/import", consumes = {BookFileFormat.NDJSON_VALUE, BookFileFormat.CSV_VALUE})
+    public BookImportResult importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                        InputStream body) throws IOException {
+        return bookImportService.importBooks(body, BookFileFormat.fromMediaType(contentType));
+    }
+
+    @GetMapping("/export")
+    public void exportBooks(@RequestParam(defaultValue = "ndjson") String format,
+                            HttpServletResponse response) throws IOException {
+        BookFileFormat fileFormat = BookFileFormat.fromName(format);
+
+        response.setContentType(fileFormat.getMediaType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"books." + fileFormat.name().toLowerCase() + "\"");
+
+        bookExportService.exportBooks(response.getOutputStream(), fileFormat);
+    }
+
+    /**
+     * Availability of a shelf of books, from an in-memory index. Ids of no book are left out.
+     */
+    @GetMapping("/availability")
+    @ConcurrencyLimited(ConcurrencyLimited.READS)
+    public List<BookAvailabilityModel> availability(@RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_AVAILABILITY_IDS) {
+            throw new BusinessException(String.format("ids must hold between 1 and %d book ids", MAX_AVAILABILITY_IDS));
+        }
+
+        return bookAvailabilityService.findAvailability(ids).entrySet().stream()
+                .map(availability -> new BookAvailabilityModel(availability.getKey(), availability.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("/search")
+    @ConcurrencyLimited(ConcurrencyLimited.READS)
+    public List<BookModel> search(@RequestParam String q,
+                                  @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new BusinessException(String.format("limit must be between 1 and %d", MAX_SEARCH_LIMIT));
+        }
+
+        return bookMapper.toModels(bookSearchService.search(q, limit));
     }
 
     //linha dde teste
 
+    /**
+     * The book version is its ETag, so a revalidation is answered with 304 from the version
+     * alone, without loading or serializing the book.
+     */
     @GetMapping("/{id}")
-    public BookModel findById(@PathVariable Long id) {
+    @ConcurrencyLimited(ConcurrencyLimited.READS)
+    public ResponseEntity<BookModel> findById(@PathVariable Long id, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = bookService.findVersionById(id);
+
+            if (version.isPresent() && request.checkNotModified(eTag(version.get()))) {
+                return null;
+            }
+        }
+
         return bookService.findById(id)
-                .map(book -> modelMapper.map(book, BookModel.class))
+                .map(book -> ResponseEntity.ok()
+                        .eTag(eTag(book.getVersion()))
+                        .body(bookMapper.toModel(book)))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     @GetMapping
-    public Page<BookModel> filter(BookModel bookModel,
-                                  Pageable pageable) {
-        Book book = modelMapper.map(bookModel, Book.class);
-
-        Page<Book> bookPage = bookService.filter(book, pageable);
+    @ConcurrencyLimited(ConcurrencyLimited.READS)
+    public BookPageModel filter(BookModel bookModel,
+                                Pageable pageable) {
+        Book book = bookMapper.toEntity(bookModel);
 
-        List<BookModel> bookModelList = bookPage.getContent().stream()
-                .map(entity -> modelMapper.map(entity, BookModel.class))
-                .collect(Collectors.toList());
+        return bookMapper.toPageModel(bookService.filter(book, pageable));
+    }
 
-        return new PageImpl<>(bookModelList, pageable, bookPage.getTotalElements());
+    @GetMapping(params = "paging=keyset")
+    @ConcurrencyLimited(ConcurrencyLimited.READS)
+    public BookSliceModel filterByKeyset(BookModel bookModel,
+                                         @RequestParam(required = false) String cursor,
+                                         Pageable pageable) {
+        Book book = bookMapper.toEntity(bookModel);
+
+        BookKeyset keyset = cursor == null
+                ? BookKeyset.first(pageable.getSort())
+                : BookKeyset.decode(cursor);
+
+        Slice<Book> bookSlice = bookService.filter(book, keyset, pageable.getPageSize());
+
+        List<Book> books = bookSlice.getContent();
+        String next = bookSlice.hasNext()
+                ? keyset.after(books.get(books.size() - 1)).encode()
+                : null;
+
+        return BookSliceModel.builder()
+                .content(bookMapper.toModels(books))
+                .size(pageable.getPageSize())
+                .hasNext(bookSlice.hasNext())
+                .next(next)
+            .build();
     }
 
+    /**
+     * With {@code If-Match} the update only goes through while the client still holds the current
+     * version; a change slipping in between the check and the write is caught by the version
+     * column on flush.
+     */
     @PutMapping("/{id}")
-    public BookModel update(@PathVariable Long id, @RequestBody @Valid BookModel bookModel) {
-        return bookService.findById(id).map(book -> {
+    @ConcurrencyLimited(ConcurrencyLimited.WRITES)
+    public ResponseEntity<BookModel> update(@PathVariable Long id,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                            @RequestBody @Valid BookModel bookModel) {
+        Book book = bookService.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        if (ifMatch != null && !matchesETag(ifMatch, book.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, BOOK_MODIFIED);
+        }
 
-            book.setTitle(bookModel.getTitle());
-            book.setAuthor(bookModel.getAuthor());
+        book.setTitle(bookModel.getTitle());
+        book.setAuthor(bookModel.getAuthor());
 
-            Book savedBook = bookService.save(book);
+        Book savedBook;
+        try {
+            savedBook = bookService.save(book);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(
+                    ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT, BOOK_MODIFIED, e);
+        }
 
-            return modelMapper.map(savedBook, BookModel.class);
-        }).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return ResponseEntity.ok()
+                .eTag(eTag(savedBook.getVersion()))
+                .body(bookMapper.toModel(savedBook));
     }
 
     @DeleteMapping("/{id}")
+    @ConcurrencyLimited(ConcurrencyLimited.WRITES)
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void delete(@PathVariable Long id) {
         Book book = bookService.findById(id)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        bookService.delete(book);
+    }
+
+    private static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Strong comparison as If-Match requires, so weak validators never match.
+     */
+    private static boolean matchesETag(String ifMatch, Long version) {
+        String current = eTag(version);
+
+        return Arrays.stream(ifMatch.split(","))
+                .map(String::trim)
+                .anyMatch(candidate -> "*".equals(candidate) || current.equals(candidate));
     }
  }
 
@@ -1,20 +1,34 @@
 package com.iagosaito.libraryapi.api.controller;
 
 import com.iagosaito.libraryapi.api.dto.LoanModel;
+import com.iagosaito.libraryapi.api.dto.LoanSliceModel;
+import com.iagosaito.libraryapi.api.dto.LoanReturnInput;
 import com.iagosaito.libraryapi.api.dto.ReturnedLoanInput;
+import com.iagosaito.libraryapi.api.mapper.LoanMapper;
+import com.iagosaito.libraryapi.core.ConcurrencyLimited;
+import com.iagosaito.libraryapi.domain.exception.BusinessException;
 import com.iagosaito.libraryapi.domain.model.Book;
 import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryEntry;
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryFilter;
+import com.iagosaito.libraryapi.domain.repository.LoanKeyset;
 import com.iagosaito.libraryapi.domain.service.BookService;
+import com.iagosaito.libraryapi.domain.service.LoanReturnResult;
 import com.iagosaito.libraryapi.domain.service.LoanService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.util.CollectionUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
+import java.util.List;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping(path = "/api/loans")
 public class LoanController {
 
@@ -24,14 +38,18 @@ public class LoanController {
     @Autowired
     private LoanService loanService;
 
+    @Autowired
+    private LoanMapper loanMapper;
+
     @PostMapping
+    @ConcurrencyLimited(ConcurrencyLimited.WRITES)
     @ResponseStatus(HttpStatus.CREATED)
     public Long create(@RequestBody @Valid LoanModel loanModel) {
 
         Book book = bookService.getByIsbn(loanModel.getIsbn())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "ISBN not found!!"));
 
-        Loan loan = new ModelMapper().map(loanModel, Loan.class);
+        Loan loan = loanMapper.toEntity(loanModel, book);
 
         loan = loanService.save(loan);
 
@@ -39,6 +57,7 @@ public class LoanController {
     }
 
     @PatchMapping("/{idLoan}")
+    @ConcurrencyLimited(ConcurrencyLimited.WRITES)
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void update(@PathVariable Long idLoan,
                        @RequestBody @Valid ReturnedLoanInput returnedLoanInput) {
@@ -47,4 +66,57 @@ public class LoanController {
         loan.setReturned(returnedLoanInput.getReturned());
         loanService.update(loan);
     }
+
+    /**
+     * Book-drop returns: many loans, by id or by ISBN, marked returned in one transaction. The
+     * response carries an outcome for every item instead of failing the whole batch.
+     */
+    @PostMapping("/returns")
+    @ConcurrencyLimited(ConcurrencyLimited.WRITES)
+    public LoanReturnResult returnLoans(@RequestBody @Valid LoanReturnInput loanReturnInput) {
+        if (CollectionUtils.isEmpty(loanReturnInput.getLoanIds())
+                && CollectionUtils.isEmpty(loanReturnInput.getIsbns())) {
+            throw new BusinessException("Inform the loan ids or ISBNs to return");
+        }
+
+        return loanService.returnLoans(loanReturnInput.getLoanIds(), loanReturnInput.getIsbns());
+    }
+
+    /**
+     * A customer's loan history, newest first. Pages are cut by keyset: pass the {@code next}
+     * cursor of a page to read the following one.
+     */
+    @GetMapping
+    @ConcurrencyLimited(ConcurrencyLimited.READS)
+    public LoanSliceModel history(@RequestParam(required = false) String customer,
+                                  @RequestParam(required = false) String isbn,
+                                  @RequestParam(required = false) Boolean returned,
+                                  @RequestParam(required = false) Boolean overdue,
+                                  @RequestParam(required = false) String cursor,
+                                  Pageable pageable) {
+        LoanHistoryFilter filter = LoanHistoryFilter.builder()
+                .customer(customer)
+                .isbn(isbn)
+                .returned(returned)
+                .overdue(overdue)
+            .build();
+
+        LoanKeyset keyset = cursor == null
+                ? LoanKeyset.first()
+                : LoanKeyset.decode(cursor);
+
+        Slice<LoanHistoryEntry> loanSlice = loanService.findHistory(filter, keyset, pageable.getPageSize());
+
+        List<LoanHistoryEntry> entries = loanSlice.getContent();
+        String next = loanSlice.hasNext()
+                ? keyset.after(entries.get(entries.size() - 1)).encode()
+                : null;
+
+        return LoanSliceModel.builder()
+                .content(loanMapper.toHistoryModels(entries))
+                .size(pageable.getPageSize())
+                .hasNext(loanSlice.hasNext())
+                .next(next)
+            .build();
+    }
 }
@@ -0,0 +1,100 @@
+package com.iagosaito.libraryapi.api.controller;
+
+import com.iagosaito.libraryapi.api.dto.BookModel;
+import com.iagosaito.libraryapi.api.dto.BookPageModel;
+import com.iagosaito.libraryapi.api.mapper.BookMapper;
+import com.iagosaito.libraryapi.domain.exception.BusinessException;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.service.BookSearchService;
+import com.iagosaito.libraryapi.domain.service.ReactiveBookService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.validation.Valid;
+import java.util.List;
+
+@RestController
+@Profile("reactive")
+@RequestMapping(path = "/api/books")
+public class ReactiveBookController {
+
+    private static final int MAX_SEARCH_LIMIT = 100;
+
+    private static final String BOOK_MODIFIED = "Book was modified, reload it and try again";
+
+    @Autowired
+    private ReactiveBookService bookService;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<BookModel> save(@RequestBody @Valid BookModel bookModel) {
+        Book book = bookMapper.toEntity(bookModel);
+
+        return bookService.save(book)
+                .map(bookMapper::toModel);
+    }
+
+    @GetMapping("/search")
+    public Mono<List<BookModel>> search(@RequestParam String q,
+                                        @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new BusinessException(String.format("limit must be between 1 and %d", MAX_SEARCH_LIMIT));
+        }
+
+        // the index lookup loads the hits through JPA, keep it off the event loop
+        return Mono.fromCallable(() -> bookMapper.toModels(bookSearchService.search(q, limit)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping("/{id}")
+    public Mono<BookModel> findById(@PathVariable Long id) {
+        return bookService.findById(id)
+                .map(bookMapper::toModel)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    @GetMapping
+    public Mono<BookPageModel> filter(BookModel bookModel,
+                                      Pageable pageable) {
+        Book book = bookMapper.toEntity(bookModel);
+
+        return bookService.filter(book, pageable)
+                .map(bookMapper::toPageModel);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<BookModel> update(@PathVariable Long id, @RequestBody @Valid BookModel bookModel) {
+        return bookService.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                .flatMap(book -> {
+                    book.setTitle(bookModel.getTitle());
+                    book.setAuthor(bookModel.getAuthor());
+
+                    return bookService.save(book);
+                })
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new ResponseStatusException(HttpStatus.CONFLICT, BOOK_MODIFIED, e))
+                .map(bookMapper::toModel);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> delete(@PathVariable Long id) {
+        return bookService.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                .flatMap(bookService::delete);
+    }
+}
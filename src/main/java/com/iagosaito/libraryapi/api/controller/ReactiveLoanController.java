@@ -0,0 +1,53 @@
+package com.iagosaito.libraryapi.api.controller;
+
+import com.iagosaito.libraryapi.api.dto.LoanModel;
+import com.iagosaito.libraryapi.api.dto.ReturnedLoanInput;
+import com.iagosaito.libraryapi.api.mapper.LoanMapper;
+import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.service.ReactiveBookService;
+import com.iagosaito.libraryapi.domain.service.ReactiveLoanService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+@RestController
+@Profile("reactive")
+@RequestMapping(path = "/api/loans")
+public class ReactiveLoanController {
+
+    @Autowired
+    private ReactiveBookService bookService;
+
+    @Autowired
+    private ReactiveLoanService loanService;
+
+    @Autowired
+    private LoanMapper loanMapper;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Long> create(@RequestBody @Valid LoanModel loanModel) {
+        return bookService.findByIsbn(loanModel.getIsbn())
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "ISBN not found!!")))
+                .flatMap(book -> loanService.save(loanMapper.toEntity(loanModel, book)))
+                .map(Loan::getLoanId);
+    }
+
+    @PatchMapping("/{idLoan}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> update(@PathVariable Long idLoan,
+                             @RequestBody @Valid ReturnedLoanInput returnedLoanInput) {
+        return loanService.findById(idLoan)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                .flatMap(loan -> {
+                    loan.setReturned(returnedLoanInput.getReturned());
+                    return loanService.update(loan);
+                })
+                .then();
+    }
+}
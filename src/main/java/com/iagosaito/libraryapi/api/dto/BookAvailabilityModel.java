@@ -0,0 +1,15 @@
+package com.iagosaito.libraryapi.api.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookAvailabilityModel {
+
+    private Long id;
+
+    private boolean available;
+}
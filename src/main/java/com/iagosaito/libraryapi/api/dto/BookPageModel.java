@@ -0,0 +1,34 @@
+package com.iagosaito.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * A page of books with just the counts and flags a client pages with, under the names a serialized
+ * {@code Page} gives them, instead of the {@code pageable} and {@code sort} objects it repeats on
+ * every response.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPageModel {
+
+    private List<BookModel> content;
+
+    private int number;
+
+    private int size;
+
+    private long totalElements;
+
+    private int totalPages;
+
+    private int numberOfElements;
+
+    private boolean first;
+
+    private boolean last;
+}
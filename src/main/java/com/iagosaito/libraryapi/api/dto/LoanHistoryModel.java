@@ -0,0 +1,27 @@
+package com.iagosaito.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanHistoryModel {
+
+    private Long loanId;
+
+    private String customer;
+
+    private String customerEmail;
+
+    private String isbn;
+
+    private String title;
+
+    private LocalDate localDate;
+
+    private Boolean returned;
+}
@@ -2,6 +2,8 @@ package com.iagosaito.libraryapi.api.dto;
 
 import lombok.*;
 
+import javax.validation.constraints.Email;
+
 @Getter
 @Setter
 @Builder
@@ -10,4 +12,7 @@ import lombok.*;
 public class LoanModel {
     private String isbn;
     private String customer;
+
+    @Email
+    private String customerEmail;
 }
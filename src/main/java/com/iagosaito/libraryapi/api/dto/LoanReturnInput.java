@@ -0,0 +1,26 @@
+package com.iagosaito.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class LoanReturnInput {
+
+    public static final int MAX_ITEMS = 1_000;
+
+    @Size(max = MAX_ITEMS)
+    private List<@NotNull Long> loanIds;
+
+    @Size(max = MAX_ITEMS)
+    private List<@NotBlank String> isbns;
+}
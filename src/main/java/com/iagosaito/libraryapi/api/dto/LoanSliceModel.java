@@ -0,0 +1,21 @@
+package com.iagosaito.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanSliceModel {
+
+    private List<LoanHistoryModel> content;
+
+    private int size;
+
+    private boolean hasNext;
+
+    private String next;
+}
@@ -0,0 +1,24 @@
+package com.iagosaito.libraryapi.api.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Thrown for every request shed under overload, so it skips the stack trace.
+ */
+@Getter
+public class ConcurrencyLimitExceededException extends ResponseStatusException {
+
+    private final long retryAfterSeconds;
+
+    public ConcurrencyLimitExceededException(String group, long retryAfterSeconds) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Too many " + group + " in progress, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
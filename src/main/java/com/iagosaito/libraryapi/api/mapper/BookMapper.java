@@ -0,0 +1,35 @@
+package com.iagosaito.libraryapi.api.mapper;
+
+import com.iagosaito.libraryapi.api.dto.BookModel;
+import com.iagosaito.libraryapi.api.dto.BookPageModel;
+import com.iagosaito.libraryapi.domain.model.Book;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface BookMapper {
+
+    BookModel toModel(Book book);
+
+    // the version is only ever read from the database, never taken from a client
+    @Mapping(target = "version", ignore = true)
+    Book toEntity(BookModel bookModel);
+
+    List<BookModel> toModels(List<Book> books);
+
+    default BookPageModel toPageModel(Page<Book> books) {
+        return BookPageModel.builder()
+                .content(toModels(books.getContent()))
+                .number(books.getNumber())
+                .size(books.getSize())
+                .totalElements(books.getTotalElements())
+                .totalPages(books.getTotalPages())
+                .numberOfElements(books.getNumberOfElements())
+                .first(books.isFirst())
+                .last(books.isLast())
+            .build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.iagosaito.libraryapi.api.mapper;
+
+import com.iagosaito.libraryapi.api.dto.LoanHistoryModel;
+import com.iagosaito.libraryapi.api.dto.LoanModel;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryEntry;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface LoanMapper {
+
+    @Mapping(target = "loanId", ignore = true)
+    @Mapping(target = "localDate", ignore = true)
+    @Mapping(target = "returned", ignore = true)
+    @Mapping(target = "customer", source = "loanModel.customer")
+    @Mapping(target = "customerEmail", source = "loanModel.customerEmail")
+    @Mapping(target = "book", source = "book")
+    Loan toEntity(LoanModel loanModel, Book book);
+
+    List<LoanHistoryModel> toHistoryModels(List<LoanHistoryEntry> entries);
+}
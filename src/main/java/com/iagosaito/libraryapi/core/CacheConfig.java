@@ -0,0 +1,9 @@
+package com.iagosaito.libraryapi.core;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
@@ -0,0 +1,73 @@
+package com.iagosaito.libraryapi.core;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Adaptive concurrency limits in front of the controllers, enabled with
+ * {@code library.web.concurrency-limit.enabled=true}. Handlers marked {@link ConcurrencyLimited}
+ * share a {@link GradientConcurrencyLimit} per group, reads and writes, so slow loans cannot crowd
+ * out book lookups. Once the database slows down, the limit falls with it and excess requests get
+ * a 503 with {@code Retry-After} straight away, instead of piling up in Tomcat's queue until every
+ * one of them times out.
+ * <p>
+ * {@code library.http.concurrency.limit}, {@code .in-flight} and {@code .rejected} are tagged with
+ * the group.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "library.web.concurrency-limit.enabled", havingValue = "true")
+public class ConcurrencyLimitConfig {
+
+    private static final double SMOOTHING = 0.2;
+
+    private static final int QUEUE_SIZE = 4;
+
+    private static final int WINDOW_SAMPLES = 10;
+
+    private static final int LONG_WINDOW = 600;
+
+    @Bean
+    public ConcurrencyLimitInterceptor concurrencyLimitInterceptor(
+            MeterRegistry meterRegistry,
+            @Value("${library.web.concurrency-limit.reads.initial-limit:50}") int readsInitialLimit,
+            @Value("${library.web.concurrency-limit.reads.max-limit:150}") int readsMaxLimit,
+            @Value("${library.web.concurrency-limit.writes.initial-limit:20}") int writesInitialLimit,
+            @Value("${library.web.concurrency-limit.writes.max-limit:50}") int writesMaxLimit,
+            @Value("${library.web.concurrency-limit.min-limit:4}") int minLimit,
+            @Value("${library.web.concurrency-limit.rtt-tolerance:1.5}") double rttTolerance,
+            @Value("${library.web.concurrency-limit.window:250ms}") Duration window,
+            @Value("${library.web.concurrency-limit.retry-after:1s}") Duration retryAfter) {
+        GradientConcurrencyLimit.GradientConcurrencyLimitBuilder limit = GradientConcurrencyLimit.builder()
+                .minLimit(minLimit)
+                .rttTolerance(rttTolerance)
+                .smoothing(SMOOTHING)
+                .queueSize(QUEUE_SIZE)
+                .window(window)
+                .windowSamples(WINDOW_SAMPLES)
+                .longWindow(LONG_WINDOW);
+
+        return new ConcurrencyLimitInterceptor(meterRegistry, retryAfter)
+                .limit(ConcurrencyLimited.READS, limit.initialLimit(readsInitialLimit).maxLimit(readsMaxLimit).build())
+                .limit(ConcurrencyLimited.WRITES, limit.initialLimit(writesInitialLimit).maxLimit(writesMaxLimit).build());
+    }
+
+    @Bean
+    public WebMvcConfigurer concurrencyLimitConfigurer(ConcurrencyLimitInterceptor interceptor) {
+        return new WebMvcConfigurer() {
+
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor).addPathPatterns("/api/**");
+            }
+        };
+    }
+}
@@ -0,0 +1,105 @@
+package com.iagosaito.libraryapi.core;
+
+import com.iagosaito.libraryapi.api.exceptions.ConcurrencyLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Takes a permit from the limit of the handler's {@link ConcurrencyLimited} group before the handler
+ * runs, and gives it back with the request's latency once the response is written. Without a
+ * permit the request fails right away with a {@link ConcurrencyLimitExceededException}, before its
+ * body is even read.
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+    private final Map<String, GradientConcurrencyLimit> limits = new HashMap<>();
+
+    private final Map<String, Counter> rejections = new HashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final long retryAfterSeconds;
+
+    public ConcurrencyLimitInterceptor(MeterRegistry meterRegistry, Duration retryAfter) {
+        this.meterRegistry = meterRegistry;
+        this.retryAfterSeconds = Math.max(1, retryAfter.getSeconds());
+    }
+
+    /**
+     * Registers the limit of {@code group} with its {@code library.http.concurrency.*} meters.
+     */
+    public ConcurrencyLimitInterceptor limit(String group, GradientConcurrencyLimit limit) {
+        Tags tags = Tags.of("group", group);
+
+        limits.put(group, limit);
+        rejections.put(group, meterRegistry.counter("library.http.concurrency.rejected", tags));
+        meterRegistry.gauge("library.http.concurrency.limit", tags, limit, GradientConcurrencyLimit::getLimit);
+        meterRegistry.gauge("library.http.concurrency.in-flight", tags, limit, GradientConcurrencyLimit::getInFlight);
+
+        return this;
+    }
+
+    public GradientConcurrencyLimit getLimit(String group) {
+        return limits.get(group);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+
+        ConcurrencyLimited limited = ((HandlerMethod) handler).getMethodAnnotation(ConcurrencyLimited.class);
+        if (limited == null) {
+            return true;
+        }
+
+        GradientConcurrencyLimit limit = limits.get(limited.value());
+        if (limit == null) {
+            throw new IllegalStateException("No concurrency limit for group " + limited.value());
+        }
+
+        if (!limit.tryAcquire()) {
+            rejections.get(limited.value()).increment();
+            throw new ConcurrencyLimitExceededException(limited.value(), retryAfterSeconds);
+        }
+
+        request.setAttribute(PERMIT, new Permit(limit, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Permit permit = (Permit) request.getAttribute(PERMIT);
+        if (permit != null) {
+            request.removeAttribute(PERMIT);
+
+            long now = System.nanoTime();
+            permit.limit.release(now - permit.start, now);
+        }
+    }
+
+    private static final class Permit {
+
+        final GradientConcurrencyLimit limit;
+
+        final long start;
+
+        Permit(GradientConcurrencyLimit limit, long start) {
+            this.limit = limit;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.iagosaito.libraryapi.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a handler method behind the adaptive concurrency limit of its group, see
+ * {@link ConcurrencyLimitConfig}. Handlers that stream for as long as the client reads, such as
+ * imports and exports, stay out: their duration says nothing about how loaded the database is.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConcurrencyLimited {
+
+    String READS = "reads";
+
+    String WRITES = "writes";
+
+    String value();
+}
@@ -0,0 +1,161 @@
+package com.iagosaito.libraryapi.core;
+
+import lombok.Builder;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How many requests may run at once, adjusted to the latency they see, after the gradient
+ * algorithm of Netflix's concurrency-limits (Gradient2). Latencies are averaged over windows of at
+ * least {@code window} and {@code windowSamples} requests. Each window is compared with a long-term
+ * average of the windows before it: while the window stays within {@code rttTolerance} of that
+ * average the limit creeps up by {@code queueSize}, and once requests start queueing behind a slow
+ * database the ratio shrinks it, by at most half per window and never below {@code minLimit}.
+ * Windows in which the limit was never close to reached leave it alone, so a quiet period cannot
+ * inflate it. All changes are smoothed with {@code smoothing}.
+ * <p>
+ * Taking a permit is a compare-and-set on the in-flight count; only finished requests synchronize,
+ * to add their latency to the window.
+ */
+public final class GradientConcurrencyLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double rttTolerance;
+
+    private final double smoothing;
+
+    private final int queueSize;
+
+    private final long windowNanos;
+
+    private final int windowSamples;
+
+    private final double longRttWeight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    /**
+     * Nanoseconds, zero until the first window closes.
+     */
+    private double longRtt;
+
+    private long windowStart;
+
+    private long windowRttSum;
+
+    private int windowCount;
+
+    private int windowMaxInFlight;
+
+    /**
+     * @param longWindow how many windows the long-term latency average spans
+     */
+    @Builder
+    private GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double rttTolerance,
+                                     double smoothing, int queueSize, Duration window, int windowSamples,
+                                     int longWindow) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (rttTolerance < 1 || smoothing <= 0 || smoothing > 1 || windowSamples < 1 || longWindow < 1) {
+            throw new IllegalArgumentException("Tolerance must be at least 1, smoothing in (0, 1], "
+                    + "window samples and long window positive");
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.queueSize = queueSize;
+        this.windowNanos = window.toNanos();
+        this.windowSamples = windowSamples;
+        this.longRttWeight = 2.0 / (longWindow + 1);
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return whether the request may run; if so, {@link #release} must follow once it finished
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+
+        return true;
+    }
+
+    /**
+     * Gives back the permit of a request that took {@code rttNanos} and finished at {@code nowNanos}.
+     */
+    public void release(long rttNanos, long nowNanos) {
+        int running = inFlight.getAndDecrement();
+
+        sample(Math.max(1, rttNanos), running, nowNanos);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void sample(long rttNanos, int running, long nowNanos) {
+        if (windowCount == 0) {
+            windowStart = nowNanos;
+        }
+        windowRttSum += rttNanos;
+        windowCount++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, running);
+
+        if (windowCount < windowSamples || nowNanos - windowStart < windowNanos) {
+            return;
+        }
+
+        double shortRtt = (double) windowRttSum / windowCount;
+        int maxInFlight = windowMaxInFlight;
+        windowRttSum = 0;
+        windowCount = 0;
+        windowMaxInFlight = 0;
+
+        update(shortRtt, maxInFlight);
+    }
+
+    private void update(double shortRtt, int maxInFlight) {
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) * longRttWeight;
+        }
+
+        // after a lasting drop in latency, let the long-term average follow faster
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        if (maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + queueSize;
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
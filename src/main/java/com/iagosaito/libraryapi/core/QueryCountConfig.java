@@ -0,0 +1,73 @@
+package com.iagosaito.libraryapi.core;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.QueryCountHolder;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements each request issues, enabled with
+ * {@code library.datasource.query-count.enabled=true}. The counts live in
+ * {@link QueryCountHolder} for the request thread, so tests can assert them right after a call, and
+ * are logged at debug level once the request finishes.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "library.datasource.query-count.enabled", havingValue = "true")
+public class QueryCountConfig {
+
+    public static final String DATASOURCE_NAME = "library";
+
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create((DataSource) bean)
+                            .name(DATASOURCE_NAME)
+                            .countQuery()
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public OncePerRequestFilter queryCountFilter() {
+        return new OncePerRequestFilter() {
+
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain filterChain) throws ServletException, IOException {
+                QueryCountHolder.clear();
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    if (log.isDebugEnabled()) {
+                        QueryCount count = QueryCountHolder.getGrandTotal();
+
+                        log.debug("{} {} issued {} statements ({} select, {} insert, {} update, {} delete)",
+                                request.getMethod(), request.getRequestURI(), count.getTotal(),
+                                count.getSelect(), count.getInsert(), count.getUpdate(), count.getDelete());
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package com.iagosaito.libraryapi.core;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.data.web.ReactivePageableHandlerMethodArgumentResolver;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Opt-in WebFlux stack, enabled with {@code spring.profiles.active=reactive}. The servlet
+ * controllers are switched off under this profile and the reactive ones take over their paths.
+ */
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveConfig implements WebFluxConfigurer {
+
+    /**
+     * Boot backs the JDBC pool off as soon as an R2DBC connection factory exists, but Flyway, JPA
+     * and everything outside the two reactive controllers still run on it.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    /**
+     * r2dbc-h2 wraps the embedded engine and runs each statement synchronously on the thread that
+     * gets the connection, which is a Netty event loop or, under load, whichever caller is
+     * releasing a connection back to the pool. Handing connections out on their own workers keeps
+     * the queries off both, so waiting borrowers are not starved by the ones arriving fresh.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler r2dbcScheduler(R2dbcProperties properties) {
+        return Schedulers.newBoundedElastic(properties.getPool().getMaxSize(),
+                Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "r2dbc-h2");
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory, Scheduler r2dbcScheduler) {
+        return DatabaseClient.create(new ConnectionFactory() {
+
+            @Override
+            public Publisher<? extends Connection> create() {
+                return Mono.from(connectionFactory.create()).publishOn(r2dbcScheduler);
+            }
+
+            @Override
+            public ConnectionFactoryMetadata getMetadata() {
+                return connectionFactory.getMetadata();
+            }
+        });
+    }
+
+    /**
+     * Tomcat stays on the classpath for the servlet stack and Boot would otherwise prefer it for
+     * WebFlux as well.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new ReactivePageableHandlerMethodArgumentResolver());
+    }
+}
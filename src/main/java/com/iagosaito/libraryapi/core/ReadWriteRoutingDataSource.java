@@ -0,0 +1,94 @@
+package com.iagosaito.libraryapi.core;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Sends read-only transactions to a healthy replica and everything else to the primary. Reads fall
+ * back to the primary when no replica is healthy, when the chosen one fails to connect, and, with
+ * read-your-writes on, for a client that has just written.
+ * <p>
+ * A transaction is only marked read-only once it has begun, so the physical connection is taken
+ * lazily, on the first statement, when the routing decision can see the flag.
+ */
+public class ReadWriteRoutingDataSource extends DelegatingDataSource implements Closeable {
+
+    private final HikariDataSource primary;
+
+    private final ReplicaSet replicas;
+
+    private final int readYourWritesSeconds;
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, ReplicaSet replicas, int readYourWritesSeconds) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.readYourWritesSeconds = readYourWritesSeconds;
+
+        setTargetDataSource(new LazyConnectionDataSourceProxy(new AbstractDataSource() {
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                return route();
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return route();
+            }
+        }));
+    }
+
+    private Connection route() throws SQLException {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+
+        if (readOnly && !ReadYourWrites.isPinned()) {
+            DataSource replica = replicas.next();
+
+            if (replica != null) {
+                try {
+                    return replica.getConnection();
+                } catch (SQLException e) {
+                    replicas.markDown(replica);
+                }
+            }
+        } else if (!readOnly && readYourWritesSeconds > 0 && TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+                    ReadYourWrites.written(readYourWritesSeconds);
+                }
+            });
+        }
+
+        return primary.getConnection();
+    }
+
+    /**
+     * Exposes the primary pool to anything looking for it, such as the connection pool metrics.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(primary) ? (T) primary : super.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(primary) || super.isWrapperFor(iface);
+    }
+
+    @Override
+    public void close() {
+        primary.close();
+    }
+}
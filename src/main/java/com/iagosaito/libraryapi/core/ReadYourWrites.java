@@ -0,0 +1,62 @@
+package com.iagosaito.libraryapi.core;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Keeps a client's reads on the primary for a while after it wrote, so it never reads from a
+ * replica that has not caught up with its own write yet. Within a request the pin is held by the
+ * thread; across requests it travels in a short-lived cookie.
+ */
+public final class ReadYourWrites {
+
+    public static final String COOKIE = "library-read-primary";
+
+    private static final ThreadLocal<Boolean> PINNED = ThreadLocal.withInitial(() -> false);
+
+    private ReadYourWrites() {
+    }
+
+    /**
+     * Whether this thread's reads go to the primary, which callers sharing a read between threads
+     * have to respect.
+     */
+    public static boolean isPinned() {
+        return PINNED.get();
+    }
+
+    static void pin() {
+        PINNED.set(true);
+    }
+
+    static void clear() {
+        PINNED.remove();
+    }
+
+    /**
+     * Pins the rest of the request to the primary and asks the client to keep reading from it for
+     * {@code seconds}. Writes made outside a request, by a scheduled job for instance, pin nothing,
+     * since no filter would release the thread afterwards.
+     */
+    static void written(int seconds) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return;
+        }
+
+        pin();
+
+        HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+        if (response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, "1");
+            cookie.setPath("/");
+            cookie.setMaxAge(seconds);
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.iagosaito.libraryapi.core;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas for {@code @Transactional(readOnly = true)} work, enabled by listing their JDBC
+ * URLs in {@code library.datasource.replicas.urls}. Replicas share the primary's driver,
+ * credentials and {@code spring.datasource.hikari} settings, but give up on a connection after
+ * {@code connection-timeout-ms} so a dead replica costs a read little before it falls back.
+ * Stand-in replicas, such as extra in-memory H2 databases, can be given the schema with
+ * {@code migrate=true}; real ones get it from the primary.
+ * <p>
+ * With {@code read-your-writes-seconds} above zero, a client that committed a write reads from the
+ * primary for that long.
+ * <p>
+ * The entity manager of a request outlives its transactions (open-in-view), and Hibernate would hold
+ * on to the connection it first took, so a write following a read in the same request would go to
+ * the replica. Connections are therefore given back at the end of every transaction, and each
+ * transaction is routed on its own.
+ */
+@Slf4j
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty("library.datasource.replicas.urls")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReplicaRoutingConfig {
+
+    private static final String HIKARI_PROPERTIES = "spring.datasource.hikari";
+
+    @Bean
+    public ReplicaSet replicaSet(DataSourceProperties properties, Environment environment,
+                                 @Value("${library.datasource.replicas.urls}") String[] urls,
+                                 @Value("${library.datasource.replicas.connection-timeout-ms:1000}") long connectionTimeout,
+                                 @Value("${library.datasource.replicas.migrate:false}") boolean migrate) {
+        List<HikariDataSource> dataSources = new ArrayList<>();
+
+        for (int i = 0; i < urls.length; i++) {
+            String url = urls[i].trim();
+
+            if (migrate) {
+                migrate(url, properties);
+            }
+
+            HikariDataSource replica = pool(properties, environment);
+            replica.setJdbcUrl(url);
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setConnectionTimeout(connectionTimeout);
+            replica.setReadOnly(true);
+
+            dataSources.add(replica);
+        }
+
+        return new ReplicaSet(dataSources);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                                 ReplicaSet replicaSet,
+                                                 @Value("${library.datasource.replicas.read-your-writes-seconds:0}") int readYourWritesSeconds) {
+        return new ReadWriteRoutingDataSource(pool(properties, environment), replicaSet, readYourWritesSeconds);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${library.datasource.replicas.read-your-writes-seconds:0} > 0")
+    public OncePerRequestFilter readYourWritesFilter() {
+        return new OncePerRequestFilter() {
+
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain filterChain) throws ServletException, IOException {
+                if (WebUtils.getCookie(request, ReadYourWrites.COOKIE) != null) {
+                    ReadYourWrites.pin();
+                }
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    ReadYourWrites.clear();
+                }
+            }
+        };
+    }
+
+    @Bean
+    public HealthIndicator replicasHealthIndicator(ReplicaSet replicaSet) {
+        // reads fall back to the primary, so a replica down degrades capacity but not availability
+        return () -> Health.up()
+                .withDetails(replicaSet.health())
+                .build();
+    }
+
+    private static void migrate(String url, DataSourceProperties properties) {
+        try {
+            Flyway.configure()
+                    .dataSource(url, properties.determineUsername(), properties.determinePassword())
+                    .load()
+                    .migrate();
+        } catch (FlywayException e) {
+            // an unreachable replica stays out of rotation until it passes a health check
+            log.warn("Could not migrate replica {}", url, e);
+        }
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Environment environment) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+
+        return Binder.get(environment)
+                .bind(HIKARI_PROPERTIES, Bindable.ofInstance(dataSource))
+                .orElse(dataSource);
+    }
+}
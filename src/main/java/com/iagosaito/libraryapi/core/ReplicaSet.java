@@ -0,0 +1,113 @@
+package com.iagosaito.libraryapi.core;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * The read replicas behind {@link ReadWriteRoutingDataSource}. Every replica is probed on a fixed
+ * delay, and only the ones that answered their last probe take reads, in turn.
+ */
+@Slf4j
+public class ReplicaSet implements Closeable {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final List<Replica> replicas;
+
+    private final AtomicInteger turn = new AtomicInteger();
+
+    public ReplicaSet(List<HikariDataSource> dataSources) {
+        this.replicas = dataSources.stream()
+                .map(Replica::new)
+                .collect(Collectors.toList());
+
+        check();
+    }
+
+    @Scheduled(initialDelayString = "${library.datasource.replicas.health-check-interval-ms:5000}",
+            fixedDelayString = "${library.datasource.replicas.health-check-interval-ms:5000}")
+    public void check() {
+        for (Replica replica : replicas) {
+            boolean healthy = probe(replica.dataSource);
+
+            if (healthy && !replica.healthy) {
+                log.info("Replica {} is back up", replica.dataSource.getPoolName());
+            } else if (!healthy && replica.healthy) {
+                log.warn("Replica {} is down, reads skip it", replica.dataSource.getPoolName());
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    /**
+     * The next healthy replica in turn, or {@code null} when none is.
+     */
+    DataSource next() {
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(turn.getAndIncrement(), replicas.size()));
+
+            if (replica.healthy) {
+                return replica.dataSource;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Takes a replica out of the rotation until its next successful probe, after it failed to hand
+     * out a connection.
+     */
+    void markDown(DataSource dataSource) {
+        for (Replica replica : replicas) {
+            if (replica.dataSource == dataSource && replica.healthy) {
+                replica.healthy = false;
+                log.warn("Replica {} failed a connection, reads skip it", replica.dataSource.getPoolName());
+            }
+        }
+    }
+
+    public Map<String, Boolean> health() {
+        Map<String, Boolean> health = new LinkedHashMap<>();
+
+        for (Replica replica : replicas) {
+            health.put(replica.dataSource.getPoolName(), replica.healthy);
+        }
+        return health;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static boolean probe(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static class Replica {
+
+        private final HikariDataSource dataSource;
+
+        // assumed up until the first probe, run as soon as the set is built
+        private volatile boolean healthy = true;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
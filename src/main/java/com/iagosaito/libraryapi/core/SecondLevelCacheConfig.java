@@ -0,0 +1,103 @@
+package com.iagosaito.libraryapi.core;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Hibernate second-level cache for the entities and natural ids marked cacheable, with the regions
+ * configured in {@code ehcache.xml}. Disabled with {@code library.jpa.second-level-cache.enabled=false}.
+ * <p>
+ * Each application context gets a cache manager of its own instead of the JVM-wide default, so two
+ * contexts never share rows that belong to different databases. Hits, misses and puts are published
+ * per region as {@code library.jpa.cache.requests} and {@code library.jpa.cache.puts}, next to the
+ * totals Micrometer's Hibernate metrics already report. Both need Hibernate statistics, which count
+ * every statement, so they are only collected with {@code library.jpa.second-level-cache.statistics=true}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.jpa.second-level-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class SecondLevelCacheConfig {
+
+    private static final String CACHE_CONFIG = "ehcache.xml";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager() throws IOException {
+        return new EhcacheCachingProvider().getCacheManager(
+                new ClassPathResource(CACHE_CONFIG).getURI(), getClass().getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+            CacheManager secondLevelCacheManager,
+            @Value("${library.jpa.second-level-cache.statistics:false}") boolean statistics) {
+        return properties -> {
+            properties.put(AvailableSettings.GENERATE_STATISTICS, statistics);
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "library.jpa.second-level-cache.statistics", havingValue = "true")
+    public MeterBinder secondLevelCacheRegionMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+            Statistics statistics = sessionFactory.getStatistics();
+
+            for (String region : regionNames(sessionFactory)) {
+                regionCounter(statistics, region, "library.jpa.cache.requests", CacheRegionStatistics::getHitCount)
+                        .tag("result", "hit")
+                        .register(registry);
+                regionCounter(statistics, region, "library.jpa.cache.requests", CacheRegionStatistics::getMissCount)
+                        .tag("result", "miss")
+                        .register(registry);
+                regionCounter(statistics, region, "library.jpa.cache.puts", CacheRegionStatistics::getPutCount)
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Natural-id regions are left out of {@link Statistics#getSecondLevelCacheRegionNames()}, so they
+     * are collected from the entity persisters.
+     */
+    private static Set<String> regionNames(SessionFactoryImplementor sessionFactory) {
+        Set<String> regions = new TreeSet<>(Arrays.asList(sessionFactory.getStatistics().getSecondLevelCacheRegionNames()));
+
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            if (persister.hasNaturalIdCache()) {
+                regions.add(persister.getNaturalIdCacheAccessStrategy().getRegion().getName());
+            }
+        }
+        return regions;
+    }
+
+    private static FunctionCounter.Builder<Statistics> regionCounter(Statistics statistics, String region, String name,
+                                                                     ToDoubleFunction<CacheRegionStatistics> count) {
+        return FunctionCounter.builder(name, statistics,
+                        stats -> count.applyAsDouble(stats.getDomainDataRegionStatistics(region)))
+                .tag("region", region);
+    }
+}
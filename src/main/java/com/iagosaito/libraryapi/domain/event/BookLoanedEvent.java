@@ -0,0 +1,11 @@
+package com.iagosaito.libraryapi.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BookLoanedEvent {
+
+    private final Long bookId;
+}
@@ -0,0 +1,19 @@
+package com.iagosaito.libraryapi.domain.event;
+
+import com.iagosaito.libraryapi.domain.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class BookSavedEvent {
+
+    private final List<Book> books;
+
+    public BookSavedEvent(Book book) {
+        this(Collections.singletonList(book));
+    }
+}
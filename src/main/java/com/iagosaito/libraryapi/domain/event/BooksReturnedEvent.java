@@ -0,0 +1,18 @@
+package com.iagosaito.libraryapi.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class BooksReturnedEvent {
+
+    private final List<Long> bookIds;
+
+    public BooksReturnedEvent(Long bookId) {
+        this(Collections.singletonList(bookId));
+    }
+}
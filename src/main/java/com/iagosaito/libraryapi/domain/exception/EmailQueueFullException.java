@@ -0,0 +1,12 @@
+package com.iagosaito.libraryapi.domain.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class EmailQueueFullException extends RuntimeException {
+
+    public EmailQueueFullException(String e) {
+        super(e);
+    }
+}
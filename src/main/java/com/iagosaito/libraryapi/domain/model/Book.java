@@ -4,27 +4,49 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
+import javax.validation.constraints.NotBlank;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
 @Table(name = "book")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Book.CACHE_REGION)
+@NaturalIdCache(region = Book.ISBN_CACHE_REGION)
 public class Book {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public static final String CACHE_REGION = "books";
+
+    public static final String ISBN_CACHE_REGION = "book-isbns";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     @Column
     private Long id;
 
+    @NotBlank
     @Column
     private String title;
 
+    @NotBlank
     @Column
     private String author;
 
+    @NotBlank
+    @NaturalId(mutable = true)
     @Column
     private String isbn;
+
+    @Version
+    @Column
+    private Long version;
 }
@@ -21,18 +21,26 @@ public class Loan {
     @Column
     private String customer;
 
-    @ManyToOne
+    @Column
+    private String customerEmail;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn
+    @ToString.Exclude
     private Book book;
 
     @Column
     private LocalDate localDate;
 
-    @Column
+    @Column(nullable = false)
     private Boolean returned;
 
     @PrePersist
     private void prePersist() {
         setLocalDate(LocalDate.now());
+
+        if (returned == null) {
+            setReturned(false);
+        }
     }
 }
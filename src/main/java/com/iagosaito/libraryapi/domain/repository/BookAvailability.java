@@ -0,0 +1,17 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BookAvailability {
+
+    private final Long bookId;
+
+    private final Long openLoans;
+
+    public boolean isAvailable() {
+        return openLoans == 0;
+    }
+}
@@ -0,0 +1,13 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BookIsbn {
+
+    private final Long id;
+
+    private final String isbn;
+}
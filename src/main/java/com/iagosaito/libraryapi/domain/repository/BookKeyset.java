@@ -0,0 +1,101 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import com.iagosaito.libraryapi.domain.exception.BusinessException;
+import com.iagosaito.libraryapi.domain.model.Book;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Seek position over books ordered by {@code (property, id)}. The first page has no last row;
+ * every following page starts strictly after the {@code (lastValue, lastId)} of the previous one.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BookKeyset {
+
+    public static final List<String> SORT_PROPERTIES = Arrays.asList("id", "title", "author", "isbn");
+
+    private static final String SEPARATOR = ",";
+
+    private final String property;
+
+    private final Sort.Direction direction;
+
+    private final Long lastId;
+
+    private final String lastValue;
+
+    public static BookKeyset first(Sort sort) {
+        Sort.Order order = sort.stream()
+                .findFirst()
+                .orElse(Sort.Order.asc("id"));
+
+        if (!SORT_PROPERTIES.contains(order.getProperty())) {
+            throw new BusinessException(String.format("Cannot sort books by '%s'", order.getProperty()));
+        }
+
+        return new BookKeyset(order.getProperty(), order.getDirection(), null, null);
+    }
+
+    public static BookKeyset decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR, 4);
+
+            String property = parts[0];
+            if (!SORT_PROPERTIES.contains(property)) {
+                throw new IllegalArgumentException(property);
+            }
+
+            return new BookKeyset(property, Sort.Direction.fromString(parts[1]),
+                    Long.valueOf(parts[2]), parts[3]);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BusinessException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, property, direction.name(), String.valueOf(lastId), lastValue);
+
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public BookKeyset after(Book book) {
+        return new BookKeyset(property, direction, book.getId(), String.valueOf(sortValue().apply(book)));
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+
+    public boolean isById() {
+        return "id".equals(property);
+    }
+
+    private Function<Book, Object> sortValue() {
+        switch (property) {
+            case "title":
+                return Book::getTitle;
+            case "author":
+                return Book::getAuthor;
+            case "isbn":
+                return Book::getIsbn;
+            default:
+                return Book::getId;
+        }
+    }
+}
@@ -1,14 +1,72 @@
 package com.iagosaito.libraryapi.domain.repository;
 
 import com.iagosaito.libraryapi.domain.model.Book;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
+
+    String ISBN_CACHE = "bookIdsByIsbn";
+
+    String ISBN_UNIQUE_INDEX = "ux_book_isbn";
+
     boolean existsByIsbn(String isbn);
 
-    Optional<Book> findByIsbn(String isbn);
+    @Cacheable(cacheNames = ISBN_CACHE, unless = "#result == null")
+    @Query("SELECT b.id FROM Book b WHERE b.isbn = :isbn")
+    Optional<Long> findIdByIsbn(String isbn);
+
+    @Query("SELECT b.version FROM Book b WHERE b.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    @Query("SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns")
+    Set<String> findExistingIsbns(Collection<String> isbns);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    Stream<Book> streamAll();
+
+    /**
+     * The id and isbn of every book with an id above {@code afterId}, in id order. Start with 0 for
+     * the whole catalog.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT new com.iagosaito.libraryapi.domain.repository.BookIsbn(b.id, b.isbn) "
+            + "FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    Stream<BookIsbn> streamIsbnsAfter(Long afterId);
+
+    @Query("SELECT new com.iagosaito.libraryapi.domain.repository.BookAvailability(b.id, COUNT(l)) "
+            + "FROM Book b LEFT JOIN Loan l ON l.book = b AND l.returned = false "
+            + "WHERE b.id IN :ids GROUP BY b.id")
+    List<BookAvailability> findAvailability(Collection<Long> ids);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT new com.iagosaito.libraryapi.domain.repository.BookAvailability(b.id, COUNT(l)) "
+            + "FROM Book b LEFT JOIN Loan l ON l.book = b AND l.returned = false GROUP BY b.id")
+    Stream<BookAvailability> streamAvailability();
 }
@@ -0,0 +1,14 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import com.iagosaito.libraryapi.domain.model.Book;
+import org.springframework.data.domain.Example;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface BookRepositoryCustom {
+
+    List<Book> findAll(Example<Book> example, BookKeyset keyset, int limit);
+
+    Optional<Book> findByIsbn(String isbn);
+}
@@ -0,0 +1,102 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import com.iagosaito.libraryapi.domain.model.Book;
+import org.hibernate.Session;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Book> findAll(Example<Book> example, BookKeyset keyset, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = builder.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+
+        Predicate matches = QueryByExamplePredicateBuilder.getPredicate(root, builder, example);
+        if (matches != null) {
+            predicates.add(matches);
+        }
+
+        if (!keyset.isFirst()) {
+            predicates.add(seek(builder, root, keyset));
+        }
+
+        boolean ascending = keyset.getDirection() == Sort.Direction.ASC;
+        List<Order> orders = new ArrayList<>();
+        if (!keyset.isById()) {
+            Path<String> value = root.get(keyset.getProperty());
+            orders.add(ascending ? builder.asc(value) : builder.desc(value));
+        }
+        orders.add(ascending ? builder.asc(root.get("id")) : builder.desc(root.get("id")));
+
+        query.select(root)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(orders);
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Loads by the ISBN natural id, so a repeated lookup is answered from the natural-id and entity
+     * cache regions instead of a query.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Book> findByIsbn(String isbn) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Book.class)
+                .loadOptional(isbn);
+    }
+
+    /**
+     * (value, id) > (lastValue, lastId), or < for descending order. The redundant
+     * {@code value >= lastValue} bound is what lets H2 start the (property, id) index range at the
+     * previous page's last row instead of filtering every row before it.
+     */
+    private Predicate seek(CriteriaBuilder builder, Root<Book> root, BookKeyset keyset) {
+        boolean ascending = keyset.getDirection() == Sort.Direction.ASC;
+        Path<Long> id = root.get("id");
+
+        Predicate afterId = ascending
+                ? builder.greaterThan(id, keyset.getLastId())
+                : builder.lessThan(id, keyset.getLastId());
+
+        if (keyset.isById()) {
+            return afterId;
+        }
+
+        Path<String> value = root.get(keyset.getProperty());
+        String lastValue = keyset.getLastValue();
+
+        Predicate fromValue = ascending
+                ? builder.greaterThanOrEqualTo(value, lastValue)
+                : builder.lessThanOrEqualTo(value, lastValue);
+        Predicate afterValue = ascending
+                ? builder.greaterThan(value, lastValue)
+                : builder.lessThan(value, lastValue);
+
+        return builder.and(fromValue, builder.or(afterValue, afterId));
+    }
+}
@@ -0,0 +1,23 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Loan history criteria; every one left {@code null} matches all loans. {@code overdue} selects
+ * open loans taken on or before the overdue cutoff, or, when {@code false}, every other loan.
+ */
+@Getter
+@Builder
+@ToString
+public class LoanHistoryFilter {
+
+    private final String customer;
+
+    private final String isbn;
+
+    private final Boolean returned;
+
+    private final Boolean overdue;
+}
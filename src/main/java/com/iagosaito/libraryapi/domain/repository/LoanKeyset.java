@@ -0,0 +1,62 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import com.iagosaito.libraryapi.domain.exception.BusinessException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Seek position over loans ordered newest first by {@code (localDate, loanId)}. The first page has
+ * no last row; every following page starts strictly before the {@code (lastDate, lastLoanId)} of
+ * the previous one.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class LoanKeyset {
+
+    private static final String SEPARATOR = ",";
+
+    private final LocalDate lastDate;
+
+    private final Long lastLoanId;
+
+    public static LoanKeyset first() {
+        return new LoanKeyset(null, null);
+    }
+
+    public static LoanKeyset decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR, 2);
+
+            return new LoanKeyset(LocalDate.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            throw new BusinessException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, lastDate.toString(), String.valueOf(lastLoanId));
+
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LoanKeyset after(LoanHistoryEntry entry) {
+        return new LoanKeyset(entry.getLocalDate(), entry.getLoanId());
+    }
+
+    public boolean isFirst() {
+        return lastLoanId == null;
+    }
+}
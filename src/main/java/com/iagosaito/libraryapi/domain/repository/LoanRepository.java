@@ -2,14 +2,76 @@ package com.iagosaito.libraryapi.domain.repository;
 
 import com.iagosaito.libraryapi.domain.model.Book;
 import com.iagosaito.libraryapi.domain.model.Loan;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+public interface LoanRepository extends JpaRepository<Loan, Long>, LoanRepositoryCustom {
+
+    String OPEN_LOAN_UNIQUE_INDEX = "ux_loan_open_book";
+
+    boolean existsByBookAndReturnedFalse(Book book);
+
+    /**
+     * The stored returned flag of a loan, read for update so it cannot change before the
+     * transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l.returned FROM Loan l WHERE l.loanId = :loanId")
+    Optional<Boolean> findReturnedById(Long loanId);
+
+    /**
+     * Reads the loans for update, so they keep the state read until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.iagosaito.libraryapi.domain.repository.LoanState(l.loanId, b.id, b.isbn, l.returned) "
+            + "FROM Loan l JOIN l.book b WHERE l.loanId IN :loanIds")
+    List<LoanState> findStates(Collection<Long> loanIds);
+
+    /**
+     * Reads the open loans for update, so they stay open until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.iagosaito.libraryapi.domain.repository.LoanState(l.loanId, b.id, b.isbn, l.returned) "
+            + "FROM Loan l JOIN l.book b WHERE b.isbn IN :isbns AND l.returned = false")
+    List<LoanState> findOpenStatesByIsbn(Collection<String> isbns);
+
+    /**
+     * Set-based return of many loans in one statement, skipping the ones already returned. Loans
+     * loaded in the current session are stale afterwards, so it is cleared.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Loan l SET l.returned = true WHERE l.loanId IN :loanIds AND l.returned = false")
+    int markReturned(Collection<Long> loanIds);
+
+    /**
+     * One keyset page of open loans taken on or before {@code cutoff}, ordered by customer email and
+     * loan id. Start with an empty email and id 0, then pass the last row of the previous page.
+     * Loans without a customer email are never returned; {@link #countOverdueWithoutEmail} counts them.
+     * Empty or blank emails are returned first, and callers must skip them.
+     * Ordering by the constant {@code returned} too lets H2 read the pages straight from
+     * {@code ix_loan_open_customer_email}, which leads with it, instead of sorting them.
+     */
+    @Query("SELECT new com.iagosaito.libraryapi.domain.repository.OverdueLoan("
+            + "l.loanId, l.customer, l.customerEmail, b.isbn, b.title, l.localDate) "
+            + "FROM Loan l JOIN l.book b "
+            + "WHERE l.returned = false AND l.localDate <= :cutoff "
+            + "AND l.customerEmail >= :lastEmail "
+            + "AND (l.customerEmail > :lastEmail OR l.loanId > :lastLoanId) "
+            + "ORDER BY l.returned, l.customerEmail, l.loanId")
+    List<OverdueLoan> findOverdue(LocalDate cutoff, String lastEmail, Long lastLoanId, Pageable pageable);
 
-    @Query("SELECT CASE WHEN (COUNT(l.loanId) >= 1) THEN true ELSE false END " +
-            "FROM Loan l WHERE l.book = :book AND (l.returned IS NULL OR l.returned is false)")
-    boolean existsByBookAndNotReturned(Book book);
+    @Query("SELECT COUNT(l) FROM Loan l "
+            + "WHERE l.returned = false AND l.customerEmail IS NULL AND l.localDate <= :cutoff")
+    long countOverdueWithoutEmail(LocalDate cutoff);
 }
@@ -0,0 +1,9 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface LoanRepositoryCustom {
+
+    List<LoanHistoryEntry> findHistory(LoanHistoryFilter filter, LocalDate overdueCutoff, LoanKeyset keyset, int limit);
+}
@@ -0,0 +1,17 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class LoanState {
+
+    private final Long loanId;
+
+    private final Long bookId;
+
+    private final String isbn;
+
+    private final Boolean returned;
+}
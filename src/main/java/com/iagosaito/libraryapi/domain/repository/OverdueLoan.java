@@ -0,0 +1,23 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+@Getter
+@AllArgsConstructor
+public class OverdueLoan {
+
+    private final Long loanId;
+
+    private final String customer;
+
+    private final String customerEmail;
+
+    private final String isbn;
+
+    private final String title;
+
+    private final LocalDate localDate;
+}
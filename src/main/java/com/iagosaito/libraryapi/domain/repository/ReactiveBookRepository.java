@@ -0,0 +1,180 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import com.iagosaito.libraryapi.domain.exception.BusinessException;
+import com.iagosaito.libraryapi.domain.model.Book;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking counterpart of {@link BookRepository} for the "reactive" profile. Plain SQL over
+ * R2DBC against the same tables, since the JPA mappings cannot be reused there.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveBookRepository {
+
+    private static final String SELECT_BOOK = "SELECT id, title, author, isbn, version FROM book";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveBookRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Book> findById(Long id) {
+        return databaseClient.execute(SELECT_BOOK + " WHERE id = :id")
+                .bind("id", id)
+                .map(this::toBook)
+                .one();
+    }
+
+    public Mono<Book> findByIsbn(String isbn) {
+        return databaseClient.execute(SELECT_BOOK + " WHERE isbn = :isbn")
+                .bind("isbn", isbn)
+                .map(this::toBook)
+                .one();
+    }
+
+    /**
+     * Same matching as the JPA filter: any non-null property of the probe matches, strings
+     * case-insensitively as a substring.
+     */
+    public Flux<Book> findAll(Book probe, Pageable pageable) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        String sql = SELECT_BOOK + where(probe, parameters) + orderBy(pageable.getSort())
+                + " LIMIT :limit OFFSET :offset";
+
+        parameters.put("limit", pageable.getPageSize());
+        parameters.put("offset", pageable.getOffset());
+
+        return bind(databaseClient.execute(sql), parameters)
+                .map(this::toBook)
+                .all();
+    }
+
+    public Mono<Long> count(Book probe) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        String sql = "SELECT COUNT(*) FROM book" + where(probe, parameters);
+
+        return bind(databaseClient.execute(sql), parameters)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    public Mono<Book> insert(Book book) {
+        return databaseClient.insert()
+                .into("book")
+                .value("title", book.getTitle())
+                .value("author", book.getAuthor())
+                .value("isbn", book.getIsbn())
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .map(id -> Book.builder()
+                        .id(id)
+                        .title(book.getTitle())
+                        .author(book.getAuthor())
+                        .isbn(book.getIsbn())
+                        .version(0L)
+                    .build());
+    }
+
+    /**
+     * Writes the book only if it still has the version it was read with, the same check JPA makes
+     * for {@code @Version}.
+     *
+     * @return the version now stored, or empty when the book was changed or deleted since
+     */
+    public Mono<Long> update(Book book) {
+        return databaseClient.execute("UPDATE book SET title = :title, author = :author, isbn = :isbn, version = version + 1 "
+                + "WHERE id = :id AND version = :version")
+                .bind("title", book.getTitle())
+                .bind("author", book.getAuthor())
+                .bind("isbn", book.getIsbn())
+                .bind("id", book.getId())
+                .bind("version", book.getVersion())
+                .fetch()
+                .rowsUpdated()
+                .filter(rows -> rows > 0)
+                .map(rows -> book.getVersion() + 1);
+    }
+
+    public Mono<Integer> deleteById(Long id) {
+        return databaseClient.execute("DELETE FROM book WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private String where(Book probe, Map<String, Object> parameters) {
+        List<String> conditions = new ArrayList<>();
+
+        if (probe.getId() != null) {
+            conditions.add("id = :id");
+            parameters.put("id", probe.getId());
+        }
+        contains(conditions, parameters, "title", probe.getTitle());
+        contains(conditions, parameters, "author", probe.getAuthor());
+        contains(conditions, parameters, "isbn", probe.getIsbn());
+
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" OR ", conditions);
+    }
+
+    private void contains(List<String> conditions, Map<String, Object> parameters, String column, String value) {
+        if (value == null) {
+            return;
+        }
+
+        String escaped = value.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+
+        conditions.add(String.format("LOWER(%s) LIKE :%s ESCAPE '\\'", column, column));
+        parameters.put(column, "%" + escaped + "%");
+    }
+
+    private String orderBy(Sort sort) {
+        if (sort.isUnsorted()) {
+            return " ORDER BY id";
+        }
+
+        return sort.stream()
+                .map(order -> {
+                    if (!BookKeyset.SORT_PROPERTIES.contains(order.getProperty())) {
+                        throw new BusinessException(String.format("Cannot sort books by '%s'", order.getProperty()));
+                    }
+                    return order.getProperty() + " " + order.getDirection().name();
+                })
+                .collect(Collectors.joining(", ", " ORDER BY ", ""));
+    }
+
+    private DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec,
+                                                   Map<String, Object> parameters) {
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec;
+    }
+
+    private Book toBook(Row row) {
+        return Book.builder()
+                .id(row.get("id", Long.class))
+                .title(row.get("title", String.class))
+                .author(row.get("author", String.class))
+                .isbn(row.get("isbn", String.class))
+                .version(row.get("version", Long.class))
+            .build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.iagosaito.libraryapi.domain.repository;
+
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.model.Loan;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Non-blocking counterpart of {@link LoanRepository} for the "reactive" profile.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveLoanRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveLoanRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Boolean> existsOpenLoan(Long bookId) {
+        return databaseClient.execute("SELECT 1 FROM loan WHERE book_id = :bookId AND returned = FALSE LIMIT 1")
+                .bind("bookId", bookId)
+                .fetch()
+                .first()
+                .hasElement();
+    }
+
+    public Mono<Loan> findById(Long loanId) {
+        return databaseClient.execute("SELECT l.loan_id, l.customer, l.customer_email, l.local_date, l.returned, "
+                + "b.id, b.title, b.author, b.isbn "
+                + "FROM loan l LEFT JOIN book b ON b.id = l.book_id WHERE l.loan_id = :loanId")
+                .bind("loanId", loanId)
+                .map(this::toLoan)
+                .one();
+    }
+
+    public Mono<Loan> insert(Loan loan) {
+        DatabaseClient.GenericInsertSpec<?> insert = databaseClient.insert()
+                .into("loan")
+                .value("book_id", loan.getBook().getId())
+                .value("local_date", loan.getLocalDate())
+                .value("returned", loan.getReturned());
+
+        insert = loan.getCustomer() == null
+                ? insert.nullValue("customer", String.class)
+                : insert.value("customer", loan.getCustomer());
+        insert = loan.getCustomerEmail() == null
+                ? insert.nullValue("customer_email", String.class)
+                : insert.value("customer_email", loan.getCustomerEmail());
+
+        return insert.map(row -> row.get("loan_id", Long.class))
+                .one()
+                .map(loanId -> {
+                    loan.setLoanId(loanId);
+                    return loan;
+                });
+    }
+
+    /**
+     * Sets {@code returned} only on a loan where it differs, so the row count tells whether this
+     * call changed the loan's state.
+     */
+    public Mono<Integer> updateReturned(Loan loan) {
+        return databaseClient.execute("UPDATE loan SET returned = :returned "
+                + "WHERE loan_id = :loanId AND returned <> :returned")
+                .bind("returned", loan.getReturned())
+                .bind("loanId", loan.getLoanId())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> update(Loan loan) {
+        DatabaseClient.GenericExecuteSpec update = databaseClient.execute(
+                "UPDATE loan SET customer = :customer, customer_email = :customerEmail, returned = :returned "
+                        + "WHERE loan_id = :loanId")
+                .bind("returned", loan.getReturned())
+                .bind("loanId", loan.getLoanId());
+
+        update = loan.getCustomer() == null
+                ? update.bindNull("customer", String.class)
+                : update.bind("customer", loan.getCustomer());
+        update = loan.getCustomerEmail() == null
+                ? update.bindNull("customerEmail", String.class)
+                : update.bind("customerEmail", loan.getCustomerEmail());
+
+        return update.fetch().rowsUpdated();
+    }
+
+    private Loan toLoan(Row row) {
+        Long bookId = row.get("id", Long.class);
+
+        Book book = bookId == null ? null : Book.builder()
+                .id(bookId)
+                .title(row.get("title", String.class))
+                .author(row.get("author", String.class))
+                .isbn(row.get("isbn", String.class))
+            .build();
+
+        return Loan.builder()
+                .loanId(row.get("loan_id", Long.class))
+                .customer(row.get("customer", String.class))
+                .customerEmail(row.get("customer_email", String.class))
+                .localDate(row.get("local_date", LocalDate.class))
+                .returned(row.get("returned", Boolean.class))
+                .book(book)
+            .build();
+    }
+}
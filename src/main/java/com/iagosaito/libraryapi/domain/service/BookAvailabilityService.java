@@ -0,0 +1,14 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface BookAvailabilityService {
+
+    /**
+     * Whether each book is free to loan, in the order of {@code bookIds}, leaving out ids of no book.
+     */
+    Map<Long, Boolean> findAvailability(Collection<Long> bookIds);
+
+    long reconcile();
+}
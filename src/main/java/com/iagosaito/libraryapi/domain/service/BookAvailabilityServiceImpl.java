@@ -0,0 +1,343 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.iagosaito.libraryapi.domain.event.BookDeletedEvent;
+import com.iagosaito.libraryapi.domain.event.BookLoanedEvent;
+import com.iagosaito.libraryapi.domain.event.BookSavedEvent;
+import com.iagosaito.libraryapi.domain.event.BooksReturnedEvent;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookAvailability;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Which books exist and which of them are out on loan, as two bitsets indexed by book id, so a
+ * shelf of books is answered without a query. The bitsets are loaded from the catalog and its open
+ * loans when the application starts, kept current from book and loan events once their
+ * transaction commits, and reloaded every {@code reconcile-interval-ms} to catch loans written by
+ * another instance or events applied out of order. Bits the reload had to correct are counted as
+ * {@code library.books.availability.corrections}.
+ * <p>
+ * Lookups read under an optimistic {@link StampedLock} stamp and only take the read lock when a
+ * write got in between. Ids the index does not know, such as books added by another instance, are
+ * looked up in the database with one query and added.
+ */
+@Slf4j
+@Service
+public class BookAvailabilityServiceImpl implements BookAvailabilityService {
+
+    private final BookRepository bookRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final StampedLock lock = new StampedLock();
+
+    private final Counter indexed;
+
+    private final Counter queried;
+
+    private final Counter corrections;
+
+    private Bits bits = new Bits();
+
+    private boolean ready;
+
+    /**
+     * Changes made while a reload scans the database, replayed on the reloaded bits.
+     */
+    private List<Consumer<Bits>> pending;
+
+    public BookAvailabilityServiceImpl(BookRepository bookRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry) {
+        this.bookRepository = bookRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.indexed = meterRegistry.counter("library.books.availability.lookups", "source", "index");
+        this.queried = meterRegistry.counter("library.books.availability.lookups", "source", "database");
+        this.corrections = meterRegistry.counter("library.books.availability.corrections");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconcile();
+    }
+
+    @Scheduled(initialDelayString = "${library.books.availability.reconcile-interval-ms:300000}",
+            fixedDelayString = "${library.books.availability.reconcile-interval-ms:300000}")
+    public void reconcileOnSchedule() {
+        reconcile();
+    }
+
+    @Override
+    public Map<Long, Boolean> findAvailability(Collection<Long> bookIds) {
+        Map<Long, Boolean> found = new HashMap<>();
+
+        long stamp = lock.tryOptimisticRead();
+        lookup(bookIds, found);
+        if (!lock.validate(stamp)) {
+            found.clear();
+
+            stamp = lock.readLock();
+            try {
+                lookup(bookIds, found);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        indexed.increment(found.size());
+
+        List<Long> missing = new ArrayList<>();
+        for (Long bookId : bookIds) {
+            if (bookId != null && !found.containsKey(bookId)) {
+                missing.add(bookId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            queried.increment(missing.size());
+            List<BookAvailability> loaded = bookRepository.findAvailability(missing);
+
+            loaded.forEach(book -> found.put(book.getBookId(), book.isAvailable()));
+            change(bits -> loaded.forEach(book -> bits.putIfAbsent(book.getBookId(), book.isAvailable())));
+        }
+
+        Map<Long, Boolean> availability = new LinkedHashMap<>();
+        for (Long bookId : bookIds) {
+            Boolean available = found.get(bookId);
+            if (available != null) {
+                availability.put(bookId, available);
+            }
+        }
+        return availability;
+    }
+
+    /**
+     * Reloads the bits from the database. Lookups and changes carry on against the old bits while
+     * it scans.
+     *
+     * @return how many bits the reload corrected
+     */
+    @Override
+    public synchronized long reconcile() {
+        long start = System.nanoTime();
+
+        long stamp = lock.writeLock();
+        pending = new ArrayList<>();
+        lock.unlockWrite(stamp);
+
+        Bits reloaded = new Bits();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<BookAvailability> availability = bookRepository.streamAvailability()) {
+                    availability.forEach(book -> reloaded.put(book.getBookId(), book.isAvailable()));
+                }
+            });
+        } catch (RuntimeException e) {
+            stamp = lock.writeLock();
+            pending = null;
+            lock.unlockWrite(stamp);
+            throw e;
+        }
+
+        long corrected;
+        long books;
+        long loaned;
+        stamp = lock.writeLock();
+        try {
+            pending.forEach(change -> change.accept(reloaded));
+            pending = null;
+
+            corrected = ready ? reloaded.differences(bits) : 0;
+            books = reloaded.books();
+            loaned = reloaded.loaned();
+            bits = reloaded;
+            ready = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        corrections.increment(corrected);
+        log.info("Loaded the availability of {} books ({} on loan) in {} ms, {} corrected", books, loaned,
+                (System.nanoTime() - start) / 1_000_000, corrected);
+
+        return corrected;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookSaved(BookSavedEvent event) {
+        follow(event, () -> {
+            for (Book book : event.getBooks()) {
+                if (book.getId() != null) {
+                    change(bits -> bits.add(book.getId()));
+                }
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookDeleted(BookDeletedEvent event) {
+        follow(event, () -> change(bits -> bits.remove(event.getBookId())));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookLoaned(BookLoanedEvent event) {
+        follow(event, () -> change(bits -> bits.put(event.getBookId(), false)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksReturned(BooksReturnedEvent event) {
+        follow(event, () -> change(bits -> event.getBookIds().forEach(bookId -> bits.put(bookId, true))));
+    }
+
+    /**
+     * The events arrive after their write committed, so a failure here is logged instead of failing
+     * a write that succeeded; the next reconcile corrects the bits it left behind.
+     */
+    private void follow(Object event, Runnable update) {
+        try {
+            update.run();
+        } catch (RuntimeException e) {
+            log.error("Could not apply {} to the availability index until the next reconcile",
+                    event.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Reads the fields into locals first, as an optimistic read may see them change underneath.
+     */
+    private void lookup(Collection<Long> bookIds, Map<Long, Boolean> found) {
+        if (!ready) {
+            return;
+        }
+
+        Bits current = bits;
+        long[] books = current.books;
+        long[] loaned = current.loaned;
+
+        for (Long bookId : bookIds) {
+            if (bookId != null && Bits.get(books, bookId)) {
+                found.put(bookId, !Bits.get(loaned, bookId));
+            }
+        }
+    }
+
+    private void change(Consumer<Bits> change) {
+        long stamp = lock.writeLock();
+        try {
+            change.accept(bits);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * One bit per book id in each array, grown as larger ids come in. Ids that do not fit an int
+     * index are left to the database.
+     */
+    private static final class Bits {
+
+        private static final long MAX_ID = (long) Integer.MAX_VALUE << 6;
+
+        long[] books = new long[0];
+
+        long[] loaned = new long[0];
+
+        void add(Long bookId) {
+            books = set(books, bookId, true);
+        }
+
+        void put(Long bookId, boolean available) {
+            books = set(books, bookId, true);
+            loaned = set(loaned, bookId, !available);
+        }
+
+        /**
+         * Leaves a book alone that a loan event added after the query read it.
+         */
+        void putIfAbsent(Long bookId, boolean available) {
+            if (bookId != null && !get(books, bookId)) {
+                put(bookId, available);
+            }
+        }
+
+        void remove(Long bookId) {
+            books = set(books, bookId, false);
+            loaned = set(loaned, bookId, false);
+        }
+
+        long books() {
+            return Arrays.stream(books).map(Long::bitCount).sum();
+        }
+
+        long loaned() {
+            return Arrays.stream(loaned).map(Long::bitCount).sum();
+        }
+
+        long differences(Bits other) {
+            return differences(books, other.books) + differences(loaned, other.loaned);
+        }
+
+        static boolean get(long[] words, long id) {
+            if (id < 0 || id >= MAX_ID) {
+                return false;
+            }
+
+            int index = (int) (id >>> 6);
+            return index < words.length && (words[index] & (1L << id)) != 0;
+        }
+
+        private static long[] set(long[] words, Long id, boolean value) {
+            if (id == null || id < 0 || id >= MAX_ID) {
+                return words;
+            }
+
+            int index = (int) (id >>> 6);
+            if (index >= words.length) {
+                if (!value) {
+                    return words;
+                }
+                words = Arrays.copyOf(words, Math.max(index + 1, words.length + (words.length >> 1)));
+            }
+
+            if (value) {
+                words[index] |= 1L << id;
+            } else {
+                words[index] &= ~(1L << id);
+            }
+            return words;
+        }
+
+        private static long differences(long[] words, long[] others) {
+            long differences = 0;
+            for (int i = 0; i < Math.max(words.length, others.length); i++) {
+                long word = i < words.length ? words[i] : 0;
+                long other = i < others.length ? others[i] : 0;
+                differences += Long.bitCount(word ^ other);
+            }
+            return differences;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface BookExportService {
+
+    long exportBooks(OutputStream output, BookFileFormat format) throws IOException;
+}
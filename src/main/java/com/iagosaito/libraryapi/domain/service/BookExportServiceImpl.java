@@ -0,0 +1,57 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class BookExportServiceImpl implements BookExportService {
+
+    private final BookRepository bookRepository;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    private final int flushEvery;
+
+    public BookExportServiceImpl(BookRepository bookRepository,
+                                 EntityManager entityManager,
+                                 ObjectMapper objectMapper,
+                                 @Value("${library.books.export.flush-every:500}") int flushEvery) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.flushEvery = flushEvery;
+    }
+
+    /**
+     * Streams the catalog from a forward-only cursor, detaching every book once it is written so
+     * the persistence context stays empty however large the catalog is.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportBooks(OutputStream output, BookFileFormat format) throws IOException {
+        try (Stream<Book> books = bookRepository.streamAll();
+             BookFileWriter writer = BookFileWriter.open(output, format, objectMapper, flushEvery)) {
+
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
+                writer.write(book);
+                entityManager.detach(book);
+            }
+
+            return writer.getWritten();
+        }
+    }
+}
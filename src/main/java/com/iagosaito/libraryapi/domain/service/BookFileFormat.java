@@ -0,0 +1,38 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.iagosaito.libraryapi.domain.exception.BusinessException;
+
+import java.util.Arrays;
+
+public enum BookFileFormat {
+
+    NDJSON(BookFileFormat.NDJSON_VALUE),
+    CSV(BookFileFormat.CSV_VALUE);
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String CSV_VALUE = "text/csv";
+
+    private final String mediaType;
+
+    BookFileFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public static BookFileFormat fromName(String name) {
+        return Arrays.stream(values())
+                .filter(format -> format.name().equalsIgnoreCase(name))
+                .findFirst()
+                .orElseThrow(() -> new BusinessException("Unsupported book file format: " + name));
+    }
+
+    public static BookFileFormat fromMediaType(String mediaType) {
+        return Arrays.stream(values())
+                .filter(format -> mediaType != null && mediaType.toLowerCase().startsWith(format.mediaType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported book file format: " + mediaType));
+    }
+}
@@ -0,0 +1,143 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.iagosaito.libraryapi.domain.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads books one line at a time from an NDJSON or CSV payload, so nothing but the current line is
+ * ever held in memory. A malformed line is reported as a failed row instead of aborting the read.
+ * CSV payloads must start with a header naming the columns; quoted values can't span lines. Only
+ * the columns a client may set are read, like {@code BookMapper} does for the API: an id, version
+ * or any other column in a row is ignored.
+ */
+class BookFileReader implements Iterator<BookFileReader.Row>, Closeable {
+
+    private final BufferedReader reader;
+
+    private final ObjectReader rowReader;
+
+    private long lineNumber;
+
+    private Row next;
+
+    private BookFileReader(BufferedReader reader, ObjectReader rowReader, long lineNumber) {
+        this.reader = reader;
+        this.rowReader = rowReader;
+        this.lineNumber = lineNumber;
+    }
+
+    static BookFileReader open(InputStream input, BookFileFormat format, ObjectMapper objectMapper) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        if (format == BookFileFormat.NDJSON) {
+            return new BookFileReader(reader, objectMapper.readerFor(BookRow.class)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES), 0);
+        }
+
+        String header = reader.readLine();
+        CsvSchema.Builder schema = CsvSchema.builder();
+        if (header != null) {
+            for (String column : header.split(",")) {
+                schema.addColumn(column.trim());
+            }
+        }
+
+        return new BookFileReader(reader, new CsvMapper().readerFor(BookRow.class)
+                .with(schema.build())
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES), 1);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Row readNext() {
+        try {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+            } while (line != null && line.isBlank());
+
+            if (line == null) {
+                return null;
+            }
+
+            try {
+                BookRow row = rowReader.readValue(line);
+                return new Row(lineNumber, row.toBook(), null);
+            } catch (JsonProcessingException e) {
+                return new Row(lineNumber, null, e.getOriginalMessage());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Row {
+
+        private final long line;
+
+        private final Book book;
+
+        private final String error;
+    }
+
+    @Data
+    static class BookRow {
+
+        private String title;
+
+        private String author;
+
+        private String isbn;
+
+        Book toBook() {
+            return Book.builder()
+                    .title(title)
+                    .author(author)
+                    .isbn(isbn)
+                .build();
+        }
+    }
+}
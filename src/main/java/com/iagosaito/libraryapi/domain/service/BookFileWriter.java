@@ -0,0 +1,73 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.iagosaito.libraryapi.domain.model.Book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes books one by one as NDJSON or CSV (with a header), flushing every {@code flushEvery} books
+ * so the payload leaves in chunks instead of piling up in the response buffer.
+ */
+class BookFileWriter implements Closeable {
+
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+            .addColumn("id")
+            .addColumn("title")
+            .addColumn("author")
+            .addColumn("isbn")
+            .build()
+            .withHeader();
+
+    private final SequenceWriter writer;
+
+    private final OutputStream output;
+
+    private final int flushEvery;
+
+    private long written;
+
+    private BookFileWriter(SequenceWriter writer, OutputStream output, int flushEvery) {
+        this.writer = writer;
+        this.output = output;
+        this.flushEvery = flushEvery;
+    }
+
+    static BookFileWriter open(OutputStream output, BookFileFormat format, ObjectMapper objectMapper,
+                               int flushEvery) throws IOException {
+        if (format == BookFileFormat.NDJSON) {
+            return new BookFileWriter(objectMapper.writerFor(Book.class)
+                    .withRootValueSeparator("\n")
+                    .writeValues(output), output, flushEvery);
+        }
+
+        return new BookFileWriter(new CsvMapper().writerFor(Book.class)
+                .with(CSV_SCHEMA)
+                .with(JsonGenerator.Feature.IGNORE_UNKNOWN)
+                .writeValues(output), output, flushEvery);
+    }
+
+    void write(Book book) throws IOException {
+        writer.write(book);
+
+        if (++written % flushEvery == 0) {
+            writer.flush();
+            output.flush();
+        }
+    }
+
+    long getWritten() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
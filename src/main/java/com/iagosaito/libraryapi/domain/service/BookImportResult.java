@@ -0,0 +1,50 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class BookImportResult {
+
+    static final int MAX_REPORTED_ERRORS = 1_000;
+
+    private long imported;
+
+    private long rejected;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    private final List<RowError> errors = new ArrayList<>();
+
+    void imported(int rows) {
+        imported += rows;
+    }
+
+    void rejected(long line, String isbn, String message) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, isbn, message));
+        }
+    }
+
+    void finished(long elapsedNanos) {
+        elapsedMillis = elapsedNanos / 1_000_000;
+        rowsPerSecond = elapsedNanos == 0 ? 0 : (imported + rejected) * 1_000_000_000d / elapsedNanos;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RowError {
+
+        private final long line;
+
+        private final String isbn;
+
+        private final String message;
+    }
+}
@@ -0,0 +1,9 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface BookImportService {
+
+    BookImportResult importBooks(InputStream input, BookFileFormat format) throws IOException;
+}
@@ -0,0 +1,225 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iagosaito.libraryapi.domain.event.BookSavedEvent;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private static final String DUPLICATED_ISBN = "ISBN já cadastrado";
+
+    private static final String REJECTED_BY_DATABASE = "Rejected by the database";
+
+    private final BookRepository bookRepository;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate chunkTransaction;
+
+    private final TransactionTemplate rowTransaction;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final BookIsbnFilter isbnFilter;
+
+    private final int chunkSize;
+
+    public BookImportServiceImpl(BookRepository bookRepository,
+                                 EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper,
+                                 Validator validator,
+                                 ApplicationEventPublisher eventPublisher,
+                                 BookIsbnFilter isbnFilter,
+                                 @Value("${library.books.import.chunk-size:500}") int chunkSize) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.rowTransaction = new TransactionTemplate(transactionManager);
+        this.rowTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.isbnFilter = isbnFilter;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public BookImportResult importBooks(InputStream input, BookFileFormat format) throws IOException {
+        long start = System.nanoTime();
+        BookImportResult result = new BookImportResult();
+
+        try (BookFileReader reader = BookFileReader.open(input, format, objectMapper)) {
+            Map<String, BookFileReader.Row> chunk = new LinkedHashMap<>();
+
+            while (reader.hasNext()) {
+                BookFileReader.Row row = reader.next();
+
+                String error = validate(row);
+                if (error != null) {
+                    result.rejected(row.getLine(), row.getBook() == null ? null : row.getBook().getIsbn(), error);
+                } else if (chunk.putIfAbsent(row.getBook().getIsbn(), row) != null) {
+                    result.rejected(row.getLine(), row.getBook().getIsbn(), DUPLICATED_ISBN);
+                }
+
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, result);
+                    chunk.clear();
+                }
+            }
+
+            importChunk(chunk, result);
+        }
+
+        result.finished(System.nanoTime() - start);
+
+        log.info("Imported {} books, rejected {} rows in {} ms ({} rows/s)", result.getImported(),
+                result.getRejected(), result.getElapsedMillis(), Math.round(result.getRowsPerSecond()));
+
+        return result;
+    }
+
+    private String validate(BookFileReader.Row row) {
+        if (row.getError() != null) {
+            return row.getError();
+        }
+
+        Set<ConstraintViolation<Book>> violations = validator.validate(row.getBook());
+        if (violations.isEmpty()) {
+            return null;
+        }
+
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Checks the whole chunk against the catalog with one query and inserts the new books in one
+     * transaction, letting Hibernate send them as JDBC batches. Isbns the {@link BookIsbnFilter} rules
+     * out are left out of the query, and a chunk of only new isbns skips it. If a concurrent insert
+     * wins a race for one of the isbns, or the filter missed one, the unique constraint fails the
+     * chunk and it is replayed row by row so only that row is rejected; any other row the database
+     * refuses is isolated the same way. Failures that are not about the data, like a lost
+     * connection, fail the import.
+     */
+    private void importChunk(Map<String, BookFileReader.Row> chunk, BookImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<BookFileReader.Row> duplicates = new ArrayList<>();
+
+        try {
+            List<Book> imported = chunkTransaction.execute(status -> {
+                Set<String> candidates = isbnFilter.mightExist(chunk.keySet());
+                Set<String> existingIsbns = candidates.isEmpty()
+                        ? Collections.emptySet()
+                        : bookRepository.findExistingIsbns(candidates);
+                List<Book> persisted = new ArrayList<>();
+
+                for (BookFileReader.Row row : chunk.values()) {
+                    if (existingIsbns.contains(row.getBook().getIsbn())) {
+                        duplicates.add(row);
+                    } else {
+                        entityManager.persist(row.getBook());
+                        persisted.add(row.getBook());
+                    }
+                }
+
+                entityManager.flush();
+                entityManager.clear();
+
+                return persisted;
+            });
+
+            result.imported(imported.size());
+            eventPublisher.publishEvent(new BookSavedEvent(imported));
+            duplicates.forEach(row -> result.rejected(row.getLine(), row.getBook().getIsbn(), DUPLICATED_ISBN));
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            if (!isRejectedRow(e)) {
+                throw e;
+            }
+            chunk.values().forEach(row -> importRow(row, result));
+        }
+    }
+
+    private void importRow(BookFileReader.Row row, BookImportResult result) {
+        Book book = row.getBook();
+        // the failed chunk may have assigned both before rolling back
+        book.setId(null);
+        book.setVersion(null);
+
+        try {
+            boolean imported = rowTransaction.execute(status -> {
+                if (isbnFilter.mightExist(book.getIsbn()) && bookRepository.existsByIsbn(book.getIsbn())) {
+                    return false;
+                }
+
+                entityManager.persist(book);
+                entityManager.flush();
+                entityManager.clear();
+
+                return true;
+            });
+
+            if (imported) {
+                result.imported(1);
+                eventPublisher.publishEvent(new BookSavedEvent(book));
+            } else {
+                result.rejected(row.getLine(), book.getIsbn(), DUPLICATED_ISBN);
+            }
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            if (BookServiceImpl.isDuplicatedIsbn(e)) {
+                result.rejected(row.getLine(), book.getIsbn(), DUPLICATED_ISBN);
+            } else if (isRejectedRow(e)) {
+                log.warn("Row {} with isbn {} rejected by the database", row.getLine(), book.getIsbn(), e);
+                result.rejected(row.getLine(), book.getIsbn(), REJECTED_BY_DATABASE);
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    private boolean isRejectedRow(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException || cause instanceof DataException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
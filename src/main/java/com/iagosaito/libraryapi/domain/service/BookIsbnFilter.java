@@ -0,0 +1,20 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Tells isbns that are certainly not in the catalog from ones that might be, without asking the
+ * database. A false answer is final; a true one still has to be checked against the database.
+ */
+public interface BookIsbnFilter {
+
+    boolean mightExist(String isbn);
+
+    /**
+     * @return the isbns of {@code isbns} that might be in the catalog
+     */
+    Set<String> mightExist(Collection<String> isbns);
+
+    long rebuild();
+}
@@ -0,0 +1,343 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.iagosaito.libraryapi.domain.event.BookDeletedEvent;
+import com.iagosaito.libraryapi.domain.event.BookSavedEvent;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookIsbn;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over the isbns of the catalog. It is built with one streaming scan when the
+ * application starts, or read back from {@code snapshot} plus a scan of the books added since, and
+ * then takes in the isbns of {@link BookSavedEvent}s. Until it is ready, or with {@code enabled}
+ * off, every isbn might exist.
+ * <p>
+ * Deleted isbns stay in the filter as false positives, and once more isbns were added than it was
+ * sized for its false positive rate climbs, so it is rebuilt from the catalog every
+ * {@code rebuild-interval} and as soon as it is full. It holds twice the catalog it was built from
+ * in at most {@code max-memory}.
+ * <p>
+ * Only books written through this instance are added as they come. One inserted by another
+ * instance, or by hand, reads as absent until the next rebuild, so an absent answer may only skip a
+ * check the {@code ux_book_isbn} unique constraint backs up.
+ */
+@Slf4j
+@Service
+public class BookIsbnFilterImpl implements BookIsbnFilter {
+
+    private static final long MIN_CAPACITY = 10_000;
+
+    private static final int HEADROOM = 2;
+
+    private static final long MAINTENANCE_INTERVAL_MS = 60_000;
+
+    private final BookRepository bookRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final boolean enabled;
+
+    private final double falsePositiveRate;
+
+    private final DataSize maxMemory;
+
+    private final Duration rebuildInterval;
+
+    private final Path snapshot;
+
+    private final Counter absent;
+
+    private final Counter maybe;
+
+    private final LongAdder deletedSinceBuild = new LongAdder();
+
+    private final AtomicLong lastBookId = new AtomicLong();
+
+    private volatile IsbnBloomFilter filter;
+
+    /**
+     * The filter a rebuild is filling, which also takes the isbns saved meanwhile.
+     */
+    private volatile IsbnBloomFilter rebuilding;
+
+    private volatile long builtAt;
+
+    public BookIsbnFilterImpl(BookRepository bookRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${library.books.isbn-filter.enabled:true}") boolean enabled,
+                              @Value("${library.books.isbn-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                              @Value("${library.books.isbn-filter.max-memory:16MB}") DataSize maxMemory,
+                              @Value("${library.books.isbn-filter.rebuild-interval:6h}") Duration rebuildInterval,
+                              @Value("${library.books.isbn-filter.snapshot:}") String snapshot) {
+        this.bookRepository = bookRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxMemory = maxMemory;
+        this.rebuildInterval = rebuildInterval;
+        this.snapshot = StringUtils.hasText(snapshot) ? Paths.get(snapshot) : null;
+
+        this.absent = meterRegistry.counter("library.books.isbn-filter.checks", "result", "absent");
+        this.maybe = meterRegistry.counter("library.books.isbn-filter.checks", "result", "maybe");
+        meterRegistry.gauge("library.books.isbn-filter.entries", this,
+                service -> service.measure(IsbnBloomFilter::entries));
+        meterRegistry.gauge("library.books.isbn-filter.bytes", this,
+                service -> service.measure(IsbnBloomFilter::sizeInBytes));
+        meterRegistry.gauge("library.books.isbn-filter.false-positive-rate", this,
+                service -> service.filter == null ? Double.NaN : service.filter.expectedFalsePositiveRate());
+        meterRegistry.gauge("library.books.isbn-filter.deleted", deletedSinceBuild);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled && !restore()) {
+            rebuild();
+        }
+    }
+
+    @Override
+    public boolean mightExist(String isbn) {
+        IsbnBloomFilter current = filter;
+        if (current == null || isbn == null) {
+            return true;
+        }
+
+        boolean mightExist = current.mightContain(isbn);
+        (mightExist ? maybe : absent).increment();
+        return mightExist;
+    }
+
+    @Override
+    public Set<String> mightExist(Collection<String> isbns) {
+        IsbnBloomFilter current = filter;
+        if (current == null) {
+            return new HashSet<>(isbns);
+        }
+
+        Set<String> mightExist = new HashSet<>();
+        for (String isbn : isbns) {
+            if (isbn == null || current.mightContain(isbn)) {
+                mightExist.add(isbn);
+            }
+        }
+
+        maybe.increment(mightExist.size());
+        absent.increment(isbns.size() - mightExist.size());
+        return mightExist;
+    }
+
+    /**
+     * Replaces the filter with one sized for the catalog as it is now, without the deleted isbns.
+     * Checks keep using the old filter until the new one is complete.
+     */
+    @Override
+    public synchronized long rebuild() {
+        long start = System.nanoTime();
+
+        long capacity = Math.max(MIN_CAPACITY, bookRepository.count() * HEADROOM);
+        IsbnBloomFilter next = IsbnBloomFilter.create(capacity, falsePositiveRate, maxMemory.toBytes());
+
+        rebuilding = next;
+        try {
+            long lastId = scan(next, 0);
+
+            lastBookId.accumulateAndGet(lastId, Math::max);
+            deletedSinceBuild.reset();
+            builtAt = System.currentTimeMillis();
+            filter = next;
+        } finally {
+            rebuilding = null;
+        }
+
+        log.info("Built the isbn filter of {} isbns in {} ms: {} KB, {} hashes, {} false positive rate",
+                next.entries(), (System.nanoTime() - start) / 1_000_000, next.sizeInBytes() / 1024,
+                next.hashes(), String.format("%.4f", next.expectedFalsePositiveRate()));
+
+        if (next.sizeInBytes() >= maxMemory.toBytes()) {
+            log.warn("The isbn filter for {} isbns is capped at {}, above a {} false positive rate once full",
+                    capacity, maxMemory, falsePositiveRate);
+        }
+
+        writeSnapshot();
+
+        return next.entries();
+    }
+
+    @Scheduled(initialDelay = MAINTENANCE_INTERVAL_MS, fixedDelay = MAINTENANCE_INTERVAL_MS)
+    public void rebuildWhenDue() {
+        IsbnBloomFilter current = filter;
+        if (current == null) {
+            return;
+        }
+
+        if (current.entries() > current.capacity()) {
+            log.info("The isbn filter holds {} isbns, more than the {} it was built for", current.entries(),
+                    current.capacity());
+            rebuild();
+        } else if (System.currentTimeMillis() - builtAt >= rebuildInterval.toMillis()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Runs after the save committed, so a failure here is logged instead of failing a write that
+     * succeeded. An isbn left out only costs the import a unique-index failure until the next rebuild.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookSaved(BookSavedEvent event) {
+        try {
+            event.getBooks().forEach(this::add);
+        } catch (RuntimeException e) {
+            log.error("Could not add {} saved books to the isbn filter until its next rebuild",
+                    event.getBooks().size(), e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookDeleted(BookDeletedEvent event) {
+        deletedSinceBuild.increment();
+    }
+
+    @PreDestroy
+    public void close() {
+        writeSnapshot();
+    }
+
+    /**
+     * Reads a rebuild first, so an isbn saved while one finishes is never left out of both filters.
+     */
+    private void add(Book book) {
+        IsbnBloomFilter next = rebuilding;
+        IsbnBloomFilter current = filter;
+
+        if (next != null) {
+            next.add(book.getIsbn());
+        }
+        if (current != null) {
+            current.add(book.getIsbn());
+        }
+        if (book.getId() != null) {
+            lastBookId.accumulateAndGet(book.getId(), Math::max);
+        }
+    }
+
+    /**
+     * Adds the isbns of the books with an id above {@code afterId}.
+     *
+     * @return the highest id seen
+     */
+    private long scan(IsbnBloomFilter target, long afterId) {
+        AtomicLong lastId = new AtomicLong(afterId);
+
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<BookIsbn> isbns = bookRepository.streamIsbnsAfter(afterId)) {
+                isbns.forEach(book -> {
+                    target.add(book.getIsbn());
+                    lastId.set(book.getId());
+                });
+            }
+        });
+
+        return lastId.get();
+    }
+
+    /**
+     * Takes the filter saved by the last run and adds the books inserted after the last one it knew.
+     */
+    private boolean restore() {
+        if (snapshot == null || !Files.isRegularFile(snapshot)) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            IsbnBloomFilter restored = IsbnBloomFilter.readFrom(input);
+            long savedBuiltAt = input.readLong();
+            long savedLastBookId = input.readLong();
+
+            long entries = restored.entries();
+            long lastId = scan(restored, savedLastBookId);
+
+            lastBookId.accumulateAndGet(lastId, Math::max);
+            builtAt = savedBuiltAt;
+            filter = restored;
+
+            log.info("Restored the isbn filter of {} isbns from {} and added {} books inserted since in {} ms",
+                    entries, snapshot, restored.entries() - entries, (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not restore the isbn filter from {}, rebuilding it", snapshot, e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes next to the snapshot and moves it in place, so a crash never leaves half a snapshot.
+     * The last book id is read before the bits, so every isbn up to it is in the bits written.
+     */
+    private void writeSnapshot() {
+        IsbnBloomFilter current = filter;
+        if (snapshot == null || current == null) {
+            return;
+        }
+
+        long lastId = lastBookId.get();
+        try {
+            Path parent = snapshot.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temporary = Files.createTempFile(parent, snapshot.getFileName().toString(), ".tmp");
+
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    current.writeTo(output);
+                    output.writeLong(builtAt);
+                    output.writeLong(lastId);
+                }
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            log.warn("Could not write the isbn filter snapshot to {}", snapshot, e);
+        }
+    }
+
+    private double measure(ToLongFunction<IsbnBloomFilter> value) {
+        IsbnBloomFilter current = filter;
+        return current == null ? Double.NaN : value.applyAsLong(current);
+    }
+}
@@ -0,0 +1,12 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.iagosaito.libraryapi.domain.model.Book;
+
+import java.util.List;
+
+public interface BookSearchService {
+
+    List<Book> search(String text, int limit);
+
+    int reindex();
+}
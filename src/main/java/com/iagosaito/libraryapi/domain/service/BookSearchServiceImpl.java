@@ -0,0 +1,211 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.iagosaito.libraryapi.domain.event.BookDeletedEvent;
+import com.iagosaito.libraryapi.domain.event.BookSavedEvent;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Lucene index over book titles and authors. It is rebuilt from the catalog when the
+ * application starts and then kept current from {@link BookSavedEvent}s and {@link BookDeletedEvent}s
+ * once their transaction commits. Only ids are stored; the matching books are loaded by primary key.
+ */
+@Slf4j
+@Service
+public class BookSearchServiceImpl implements BookSearchService {
+
+    private static final String ID = "id";
+
+    private static final String TITLE = "title";
+
+    private static final String AUTHOR = "author";
+
+    private static final Set<String> ID_ONLY = Collections.singleton(ID);
+
+    private final BookRepository bookRepository;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    private final Map<String, Float> fieldWeights = new HashMap<>();
+
+    private final IndexWriter indexWriter;
+
+    private final SearcherManager searcherManager;
+
+    public BookSearchServiceImpl(BookRepository bookRepository,
+                                 EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager) throws IOException {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        fieldWeights.put(TITLE, 2.0f);
+        fieldWeights.put(AUTHOR, 1.0f);
+
+        this.indexWriter = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(indexWriter, null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reindex();
+    }
+
+    @Override
+    public List<Book> search(String text, int limit) {
+        if (text == null || text.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, fieldWeights);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(text);
+
+        List<Long> ids = new ArrayList<>();
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                for (ScoreDoc hit : searcher.search(query, limit).scoreDocs) {
+                    ids.add(Long.valueOf(searcher.doc(hit.doc, ID_ONLY).get(ID)));
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Map<Long, Book> books = bookRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        return ids.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int reindex() {
+        long start = System.nanoTime();
+        AtomicInteger indexed = new AtomicInteger();
+
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<Book> books = bookRepository.streamAll()) {
+                indexWriter.deleteAll();
+
+                books.forEach(book -> {
+                    index(book);
+                    entityManager.detach(book);
+                    indexed.incrementAndGet();
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        refresh();
+
+        log.info("Indexed {} books for search in {} ms", indexed.get(), (System.nanoTime() - start) / 1_000_000);
+
+        return indexed.get();
+    }
+
+    /**
+     * Runs after the save committed, so a failure to index is logged instead of failing a write that
+     * succeeded; the book is searchable again after the next {@link #reindex()}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookSaved(BookSavedEvent event) {
+        try {
+            event.getBooks().forEach(this::index);
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("Could not index {} saved books for search", event.getBooks().size(), e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookDeleted(BookDeletedEvent event) {
+        try {
+            indexWriter.deleteDocuments(new Term(ID, String.valueOf(event.getBookId())));
+            refresh();
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not remove book {} from the search index", event.getBookId(), e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+    }
+
+    private void index(Book book) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(book.getId()), Field.Store.YES));
+        if (book.getTitle() != null) {
+            document.add(new TextField(TITLE, book.getTitle(), Field.Store.NO));
+        }
+        if (book.getAuthor() != null) {
+            document.add(new TextField(AUTHOR, book.getAuthor(), Field.Store.NO));
+        }
+
+        try {
+            indexWriter.updateDocument(new Term(ID, String.valueOf(book.getId())), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void refresh() {
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
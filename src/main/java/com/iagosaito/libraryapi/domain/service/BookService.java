@@ -1,8 +1,10 @@
 package com.iagosaito.libraryapi.domain.service;
 
 import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookKeyset;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.Optional;
 
@@ -11,10 +13,14 @@ public interface BookService {
 
     Optional<Book> findById(Long bookId);
 
+    Optional<Long> findVersionById(Long bookId);
+
     void delete(Book book);
 
     Page<Book> filter(Book book, Pageable pageable);
 
+    Slice<Book> filter(Book book, BookKeyset keyset, int size);
+
     Optional<Book> getByIsbn(String isbn);
 
     Optional<Book> findByIsbn(String isbn);
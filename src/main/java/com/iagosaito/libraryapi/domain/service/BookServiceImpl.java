@@ -1,48 +1,131 @@
 package com.iagosaito.libraryapi.domain.service;
 
+import com.iagosaito.libraryapi.core.ReadYourWrites;
+import com.iagosaito.libraryapi.domain.event.BookDeletedEvent;
+import com.iagosaito.libraryapi.domain.event.BookSavedEvent;
 import com.iagosaito.libraryapi.domain.exception.BookNotFoundException;
 import com.iagosaito.libraryapi.domain.exception.BusinessException;
 import com.iagosaito.libraryapi.domain.exception.EntityInUseException;
 import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookKeyset;
 import com.iagosaito.libraryapi.domain.repository.BookRepository;
-import com.iagosaito.libraryapi.domain.service.BookService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 public class BookServiceImpl implements BookService {
 
     private BookRepository bookRepository;
 
-    public BookServiceImpl(BookRepository bookRepository) {
+    private ApplicationEventPublisher eventPublisher;
+
+    private final Timer saveTimer;
+
+    private final Timer findByIdTimer;
+
+    private final Timer filterTimer;
+
+    private final Timer saveQueryTimer;
+
+    private final Timer findByIdQueryTimer;
+
+    private final Timer filterQueryTimer;
+
+    private final Counter duplicatedIsbns;
+
+    private final boolean singleFlight;
+
+    private final SingleFlight<Long, Optional<Book>> findByIdLoads;
+
+    private final SingleFlight<String, Optional<Book>> findByIsbnLoads;
+
+    private final Function<Long, Optional<Book>> loadById;
+
+    private final Function<String, Optional<Book>> loadByIsbn;
+
+    public BookServiceImpl(BookRepository bookRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry,
+                           @Value("${library.books.single-flight.enabled:true}") boolean singleFlight) {
         this.bookRepository = bookRepository;
+        this.eventPublisher = eventPublisher;
+        this.singleFlight = singleFlight;
+
+        this.saveTimer = LatencyTimers.timer(meterRegistry, "library.books.service", "save");
+        this.findByIdTimer = LatencyTimers.timer(meterRegistry, "library.books.service", "findById");
+        this.filterTimer = LatencyTimers.timer(meterRegistry, "library.books.service", "filter");
+        this.saveQueryTimer = LatencyTimers.timer(meterRegistry, "library.books.repository", "saveAndFlush");
+        this.findByIdQueryTimer = LatencyTimers.timer(meterRegistry, "library.books.repository", "findById");
+        this.filterQueryTimer = LatencyTimers.timer(meterRegistry, "library.books.repository", "findAll");
+        this.duplicatedIsbns = meterRegistry.counter("library.books.rejected", "reason", "duplicated_isbn");
+        this.findByIdLoads = new SingleFlight<>(meterRegistry, "findById", BookServiceImpl::copyOf);
+        this.findByIsbnLoads = new SingleFlight<>(meterRegistry, "findByIsbn", BookServiceImpl::copyOf);
+        this.loadById = this::loadById;
+        this.loadByIsbn = bookRepository::findByIsbn;
     }
 
     @Override
+    @CacheEvict(cacheNames = BookRepository.ISBN_CACHE, key = "#book.isbn", condition = "#book.isbn != null")
     public Book save(Book book) {
-        if (bookRepository.existsByIsbn(book.getIsbn())) {
-            throw new BusinessException("ISBN já cadastrado");
-        }
+        long start = System.nanoTime();
+        try {
+            Book savedBook = saveAndFlush(book);
+            forgetLoads(savedBook);
+            eventPublisher.publishEvent(new BookSavedEvent(savedBook));
 
-        return bookRepository.save(book);
+            return savedBook;
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicatedIsbn(e)) {
+                duplicatedIsbns.increment();
+                throw new BusinessException("ISBN já cadastrado", e);
+            }
+            throw e;
+        } finally {
+            LatencyTimers.record(saveTimer, start);
+        }
     }
 
     @Override
     public Optional<Book> findById(Long bookId) {
-        return bookRepository.findById(bookId);
+        long start = System.nanoTime();
+        try {
+            return coalesce(findByIdLoads, bookId, loadById);
+        } finally {
+            LatencyTimers.record(findByIdTimer, start);
+        }
+    }
+
+    @Override
+    public Optional<Long> findVersionById(Long bookId) {
+        return bookRepository.findVersionById(bookId);
     }
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = BookRepository.ISBN_CACHE, key = "#book.isbn",
+            condition = "#book != null && #book.isbn != null")
     public void delete(Book book) {
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("ID cannot be null!!");
@@ -51,6 +134,8 @@ public class BookServiceImpl implements BookService {
         try {
             bookRepository.delete(book);
             bookRepository.flush();
+            forgetLoads(book);
+            eventPublisher.publishEvent(new BookDeletedEvent(book.getId()));
         } catch (EmptyResultDataAccessException e) {
             throw new BookNotFoundException(book.getId());
         } catch (DataIntegrityViolationException e) {
@@ -61,24 +146,115 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Book> filter(Book book, Pageable pageable) {
+        long start = System.nanoTime();
+        try {
+            Example<Book> example = toExample(book);
 
-        Example<Book> example = Example.of(book, ExampleMatcher.matchingAny()
-                .withIgnoreCase()
-                .withIgnoreNullValues()
-                .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
-        );
+            long queryStart = System.nanoTime();
+            try {
+                return bookRepository.findAll(example, pageable);
+            } finally {
+                LatencyTimers.record(filterQueryTimer, queryStart);
+            }
+        } finally {
+            LatencyTimers.record(filterTimer, start);
+        }
+    }
 
-        return bookRepository.findAll(example, pageable);
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Book> filter(Book book, BookKeyset keyset, int size) {
+        List<Book> books = bookRepository.findAll(toExample(book), keyset, size + 1);
+
+        boolean hasNext = books.size() > size;
+        if (hasNext) {
+            books = books.subList(0, size);
+        }
+
+        return new SliceImpl<>(books, PageRequest.of(0, size), hasNext);
     }
 
     @Override
     public Optional<Book> getByIsbn(String isbn) {
-        return Optional.empty();
+        return bookRepository.findIdByIsbn(isbn)
+                .map(bookRepository::getOne);
     }
 
     @Override
     public Optional<Book> findByIsbn(String isbn) {
-        return bookRepository.findByIsbn(isbn);
+        return coalesce(findByIsbnLoads, isbn, loadByIsbn);
+    }
+
+    /**
+     * A trending title brings many lookups of the same book at once; the first one queries and the
+     * rest wait for its row, each getting a detached copy of its own. The repository opens the
+     * read-only transaction, so waiting callers never hold a connection. A caller already inside a
+     * transaction loads on its own, as it needs the instance its persistence context manages, and so
+     * does one pinned to the primary by {@link ReadYourWrites}, since the leader may read a replica
+     * that has not seen its write yet.
+     */
+    private <K> Optional<Book> coalesce(SingleFlight<K, Optional<Book>> loads, K key,
+                                        Function<K, Optional<Book>> loader) {
+        if (!singleFlight || TransactionSynchronizationManager.isActualTransactionActive()
+                || ReadYourWrites.isPinned()) {
+            return loader.apply(key);
+        }
+
+        return loads.execute(key, loader);
+    }
+
+    private void forgetLoads(Book book) {
+        findByIdLoads.forget(book.getId());
+        findByIsbnLoads.forget(book.getIsbn());
+    }
+
+    private Optional<Book> loadById(Long bookId) {
+        long start = System.nanoTime();
+        try {
+            return bookRepository.findById(bookId);
+        } finally {
+            LatencyTimers.record(findByIdQueryTimer, start);
+        }
+    }
+
+    private static Optional<Book> copyOf(Optional<Book> book) {
+        return book.map(found -> found.toBuilder().build());
+    }
+
+    private Book saveAndFlush(Book book) {
+        long start = System.nanoTime();
+        try {
+            return bookRepository.saveAndFlush(book);
+        } finally {
+            LatencyTimers.record(saveQueryTimer, start);
+        }
+    }
+
+    private Example<Book> toExample(Book book) {
+        return Example.of(book, ExampleMatcher.matchingAny()
+                .withIgnoreCase()
+                .withIgnoreNullValues()
+                .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
+        );
+    }
+
+    /**
+     * Whether a write failed on the isbn unique index, wherever in the cause chain Hibernate's
+     * constraint violation sits: Spring wraps it once, a bare {@code EntityManager} flush in a
+     * {@code PersistenceException}.
+     */
+    static boolean isDuplicatedIsbn(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+
+                return constraintName != null
+                        && constraintName.toLowerCase().contains(BookRepository.ISBN_UNIQUE_INDEX);
+            }
+        }
+
+        return false;
     }
 }
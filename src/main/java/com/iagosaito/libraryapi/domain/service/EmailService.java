@@ -2,6 +2,6 @@ package com.iagosaito.libraryapi.domain.service;
 
 public interface EmailService {
 
-    void sendEmail(String email);
+    void sendEmail(String email, String message);
 
 }
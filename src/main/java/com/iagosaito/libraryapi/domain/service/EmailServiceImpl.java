@@ -1,12 +1,250 @@
 package com.iagosaito.libraryapi.domain.service;
 
+import com.iagosaito.libraryapi.domain.exception.EmailQueueFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues emails in memory and hands them to the {@link MailTransport} from a small pool of sender
+ * threads, so callers never wait on the mail server. Messages for a recipient who already has
+ * mail waiting are appended to that email instead of becoming a new one. Senders take up to
+ * {@code batch-size} recipients per transport call and retry a failed batch with exponential
+ * backoff. When {@code queue-capacity} messages are waiting, {@link #sendEmail} blocks for up to
+ * {@code offer-timeout} and then throws {@link EmailQueueFullException}, so a hung mail server
+ * cannot hold a request thread for longer than that. Callers off the request path that must not
+ * drop a message, like {@link ScheduleLoanService}, offer it again.
+ */
+@Slf4j
 @Service
 public class EmailServiceImpl implements EmailService {
 
+    private static final String MESSAGE_SEPARATOR = "\n\n";
+
+    private final MailTransport mailTransport;
+
+    private final int queueCapacity;
+
+    private final int batchSize;
+
+    private final int senders;
+
+    private final int maxAttempts;
+
+    private final Duration backoff;
+
+    private final Duration offerTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Map<String, List<String>> pending = new LinkedHashMap<>();
+
+    private final AtomicInteger pendingMessages = new AtomicInteger();
+
+    private boolean stopped;
+
+    private ExecutorService senderPool;
+
+    private final Timer sendTimer;
+
+    private final Counter queued;
+
+    private final Counter coalesced;
+
+    private final Counter rejected;
+
+    private final Counter sent;
+
+    private final Counter failed;
+
+    public EmailServiceImpl(MailTransport mailTransport,
+                            MeterRegistry meterRegistry,
+                            @Value("${library.mail.queue-capacity:10000}") int queueCapacity,
+                            @Value("${library.mail.batch-size:50}") int batchSize,
+                            @Value("${library.mail.senders:2}") int senders,
+                            @Value("${library.mail.max-attempts:5}") int maxAttempts,
+                            @Value("${library.mail.backoff:200ms}") Duration backoff,
+                            @Value("${library.mail.offer-timeout:1s}") Duration offerTimeout) {
+        this.mailTransport = mailTransport;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.senders = senders;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.offerTimeout = offerTimeout;
+
+        meterRegistry.gauge("library.mail.queue.depth", pendingMessages);
+        this.sendTimer = meterRegistry.timer("library.mail.send");
+        this.queued = meterRegistry.counter("library.mail.requests", "outcome", "queued");
+        this.coalesced = meterRegistry.counter("library.mail.requests", "outcome", "coalesced");
+        this.rejected = meterRegistry.counter("library.mail.requests", "outcome", "rejected");
+        this.sent = meterRegistry.counter("library.mail.emails", "outcome", "sent");
+        this.failed = meterRegistry.counter("library.mail.emails", "outcome", "failed");
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        senderPool = Executors.newFixedThreadPool(senders, runnable -> {
+            Thread thread = new Thread(runnable, "mail-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int i = 0; i < senders; i++) {
+            senderPool.execute(this::runSender);
+        }
+    }
+
+    /**
+     * Stops taking new mail and gives the senders up to 30 seconds to drain what is already waiting.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        lock.lock();
+        try {
+            stopped = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (senderPool != null) {
+            senderPool.shutdown();
+            if (!senderPool.awaitTermination(30, TimeUnit.SECONDS)) {
+                senderPool.shutdownNow();
+                log.warn("Dropped {} queued emails on shutdown", pendingMessages.get());
+            }
+        }
+    }
+
     @Override
-    public void sendEmail(String email) {
-        System.out.println("ENVIANDO E-MAIL PARA: " + email);
+    public void sendEmail(String email, String message) {
+        long nanos = offerTimeout.toNanos();
+
+        lock.lock();
+        try {
+            while (pendingMessages.get() >= queueCapacity && !stopped) {
+                if (nanos <= 0) {
+                    rejected.increment();
+                    throw new EmailQueueFullException("Email queue is full");
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+
+            if (stopped) {
+                rejected.increment();
+                throw new IllegalStateException("Email service is stopped");
+            }
+
+            List<String> messages = pending.get(email);
+            if (messages == null) {
+                pending.put(email, messages = new ArrayList<>());
+                queued.increment();
+            } else {
+                coalesced.increment();
+            }
+
+            messages.add(message);
+            pendingMessages.incrementAndGet();
+            notEmpty.signal();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            throw new EmailQueueFullException("Interrupted while waiting for room in the email queue");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runSender() {
+        List<MailMessage> batch;
+        while ((batch = takeBatch()) != null) {
+            deliver(batch);
+        }
+    }
+
+    /**
+     * Removes up to {@code batchSize} recipients in arrival order, or returns {@code null} once the
+     * service is stopped and nothing is left to send.
+     */
+    private List<MailMessage> takeBatch() {
+        lock.lock();
+        try {
+            while (pending.isEmpty()) {
+                if (stopped) {
+                    return null;
+                }
+                notEmpty.awaitUninterruptibly();
+            }
+
+            List<MailMessage> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<Map.Entry<String, List<String>>> recipients = pending.entrySet().iterator();
+
+            while (recipients.hasNext() && batch.size() < batchSize) {
+                Map.Entry<String, List<String>> recipient = recipients.next();
+                recipients.remove();
+
+                batch.add(new MailMessage(recipient.getKey(), String.join(MESSAGE_SEPARATOR, recipient.getValue())));
+                pendingMessages.addAndGet(-recipient.getValue().size());
+            }
+
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deliver(List<MailMessage> batch) {
+        long delayMillis = backoff.toMillis();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sendTimer.record(() -> mailTransport.send(batch));
+                sent.increment(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    failed.increment(batch.size());
+                    log.error("Giving up on {} emails after {} attempts", batch.size(), attempt, e);
+                    return;
+                }
+
+                log.warn("Sending {} emails failed (attempt {}), retrying in {} ms", batch.size(), attempt,
+                        delayMillis, e);
+            }
+
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.increment(batch.size());
+                return;
+            }
+            delayMillis *= 2;
+        }
     }
 }
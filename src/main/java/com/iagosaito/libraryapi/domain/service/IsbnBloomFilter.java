@@ -0,0 +1,189 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over isbns: {@link #mightContain} never answers false for an isbn that was added,
+ * and answers true for one that was not with roughly the false positive rate it was sized for,
+ * until more than {@code capacity} isbns have been added. Isbns cannot be removed.
+ * <p>
+ * Adding and checking are lock free; bits are set with a compare-and-set on the word holding them.
+ * The probe positions come from two 64-bit hashes of the isbn (double hashing), so the hash is part
+ * of the snapshot format and must not change without bumping {@link #FORMAT}.
+ */
+final class IsbnBloomFilter {
+
+    private static final int MAGIC = 0x49534246;
+
+    private static final int FORMAT = 1;
+
+    private static final int MAX_HASHES = 30;
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+
+    private final long bits;
+
+    private final int hashes;
+
+    private final long capacity;
+
+    private final AtomicLong entries;
+
+    private IsbnBloomFilter(AtomicLongArray words, int hashes, long capacity, long entries) {
+        this.words = words;
+        this.bits = (long) words.length() * Long.SIZE;
+        this.hashes = hashes;
+        this.capacity = capacity;
+        this.entries = new AtomicLong(entries);
+    }
+
+    /**
+     * The smallest filter holding {@code capacity} isbns at {@code falsePositiveRate}, but never more
+     * than {@code maxBytes} of bits; a capped filter holds as many at a higher rate.
+     */
+    static IsbnBloomFilter create(long capacity, double falsePositiveRate, long maxBytes) {
+        if (capacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1 || maxBytes < Long.BYTES) {
+            throw new IllegalArgumentException("capacity, false positive rate and memory must be positive, "
+                    + "the rate below 1");
+        }
+
+        long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2));
+        long bits = Math.min(optimalBits, maxBytes * Byte.SIZE);
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (bits + Long.SIZE - 1) / Long.SIZE);
+        int hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round((double) wordCount * Long.SIZE / capacity * LN2)));
+
+        return new IsbnBloomFilter(new AtomicLongArray(wordCount), hashes, capacity, 0);
+    }
+
+    /**
+     * @return whether the isbn was new to the filter, which is also false for a false positive
+     */
+    boolean add(String isbn) {
+        long hash1 = mix(hash(isbn));
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+
+        boolean changed = false;
+        for (int i = 0; i < hashes; i++) {
+            changed |= set(Math.floorMod(hash1 + i * hash2, bits));
+        }
+        if (changed) {
+            entries.incrementAndGet();
+        }
+        return changed;
+    }
+
+    boolean mightContain(String isbn) {
+        long hash1 = mix(hash(isbn));
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+
+        for (int i = 0; i < hashes; i++) {
+            if (!get(Math.floorMod(hash1 + i * hash2, bits))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Distinct isbns added, give or take the false positives among them.
+     */
+    long entries() {
+        return entries.get();
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    int hashes() {
+        return hashes;
+    }
+
+    /**
+     * The false positive rate at the current number of entries.
+     */
+    double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashes * entries.get() / bits), hashes);
+    }
+
+    void writeTo(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT);
+        output.writeInt(words.length());
+        output.writeInt(hashes);
+        output.writeLong(capacity);
+        output.writeLong(entries.get());
+        for (int i = 0; i < words.length(); i++) {
+            output.writeLong(words.get(i));
+        }
+    }
+
+    static IsbnBloomFilter readFrom(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT) {
+            throw new IOException("Not an isbn filter snapshot, or one of another format");
+        }
+
+        int wordCount = input.readInt();
+        int hashes = input.readInt();
+        long capacity = input.readLong();
+        long entries = input.readLong();
+        if (wordCount <= 0 || hashes <= 0 || hashes > MAX_HASHES || capacity <= 0) {
+            throw new IOException("Corrupt isbn filter snapshot");
+        }
+
+        AtomicLongArray words = new AtomicLongArray(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            words.set(i, input.readLong());
+        }
+        return new IsbnBloomFilter(words, hashes, capacity, entries);
+    }
+
+    private boolean set(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+
+        long word;
+        do {
+            word = words.get(index);
+            if ((word & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(index, word, word | mask));
+        return true;
+    }
+
+    private boolean get(long bit) {
+        return (words.get((int) (bit >>> 6)) & (1L << bit)) != 0;
+    }
+
+    /**
+     * FNV-1a over the characters of the isbn.
+     */
+    private static long hash(String isbn) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < isbn.length(); i++) {
+            hash ^= isbn.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * The MurmurHash3 finalizer, spreading every input bit over the whole word.
+     */
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,46 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk return, one item per distinct loan id or ISBN in the order they were sent.
+ */
+@Getter
+public class LoanReturnResult {
+
+    private long returned;
+
+    private final List<Item> items = new ArrayList<>();
+
+    void add(Long loanId, String isbn, Outcome outcome) {
+        if (outcome == Outcome.RETURNED) {
+            returned++;
+        }
+        items.add(new Item(loanId, isbn, outcome));
+    }
+
+    public enum Outcome {
+        RETURNED,
+        ALREADY_RETURNED,
+        /** the ISBN has no open loan, or no book at all */
+        NOT_LOANED,
+        NOT_FOUND
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+
+        private final Long loanId;
+
+        private final String isbn;
+
+        private final Outcome outcome;
+    }
+}
@@ -1,8 +1,12 @@
 package com.iagosaito.libraryapi.domain.service;
 
 import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryEntry;
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryFilter;
+import com.iagosaito.libraryapi.domain.repository.LoanKeyset;
+import org.springframework.data.domain.Slice;
 
-import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
 
 public interface LoanService {
@@ -11,5 +15,9 @@ public interface LoanService {
     Optional<Loan> findById(Long idLoan);
 
     Loan update(Loan loan);
+
+    LoanReturnResult returnLoans(Collection<Long> loanIds, Collection<String> isbns);
+
+    Slice<LoanHistoryEntry> findHistory(LoanHistoryFilter filter, LoanKeyset keyset, int size);
 }
 
@@ -1,40 +1,290 @@
 package com.iagosaito.libraryapi.domain.service;
 
+import com.iagosaito.libraryapi.domain.event.BookLoanedEvent;
+import com.iagosaito.libraryapi.domain.event.BooksReturnedEvent;
 import com.iagosaito.libraryapi.domain.exception.BusinessException;
+import com.iagosaito.libraryapi.domain.model.Book;
 import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryEntry;
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryFilter;
+import com.iagosaito.libraryapi.domain.repository.LoanKeyset;
 import com.iagosaito.libraryapi.domain.repository.LoanRepository;
+import com.iagosaito.libraryapi.domain.repository.LoanState;
+import com.iagosaito.libraryapi.domain.service.LoanReturnResult.Outcome;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class LoanServiceImpl implements LoanService {
 
+    private static final String BOOK_ALREADY_LOANED = "Book already loaned";
+
     private LoanRepository loanRepository;
 
-    public LoanServiceImpl(LoanRepository loanRepository) {
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Lock[] bookLocks;
+
+    private final int returnBatchSize;
+
+    private final int overdueDays;
+
+    private final Timer saveTimer;
+
+    private final Timer updateTimer;
+
+    private final Timer openLoanQueryTimer;
+
+    private final Timer saveQueryTimer;
+
+    private final Counter alreadyLoaned;
+
+    public LoanServiceImpl(LoanRepository loanRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry,
+                           @Value("${library.loans.lock-stripes:64}") int lockStripes,
+                           @Value("${library.loans.return.batch-size:500}") int returnBatchSize,
+                           @Value("${library.loans.overdue.days:7}") int overdueDays) {
         this.loanRepository = loanRepository;
+        this.eventPublisher = eventPublisher;
+        this.returnBatchSize = returnBatchSize;
+        this.overdueDays = overdueDays;
+        this.bookLocks = new Lock[lockStripes];
+
+        for (int i = 0; i < lockStripes; i++) {
+            bookLocks[i] = new ReentrantLock();
+        }
+
+        this.saveTimer = LatencyTimers.timer(meterRegistry, "library.loans.service", "save");
+        this.updateTimer = LatencyTimers.timer(meterRegistry, "library.loans.service", "update");
+        this.openLoanQueryTimer = LatencyTimers.timer(meterRegistry, "library.loans.repository", "existsByBookAndReturnedFalse");
+        this.saveQueryTimer = LatencyTimers.timer(meterRegistry, "library.loans.repository", "save");
+        this.alreadyLoaned = meterRegistry.counter("library.loans.rejected", "reason", "already_loaned");
     }
 
+    /**
+     * The open-loan check and the insert run under the book's lock stripe, so two loans of the same
+     * book cannot interleave here while loans of other books rarely meet. The unique index on open
+     * loans still decides for anything that gets around this lock, like a second instance.
+     */
     @Override
     public Loan save(Loan loan) {
+        long start = System.nanoTime();
+        Lock lock = lockFor(loan.getBook());
 
-        if (loanRepository.existsByBookAndNotReturned(loan.getBook())) {
-            throw new BusinessException("Book already loaned");
-        }
+        lock.lock();
+        try {
+            if (hasOpenLoan(loan.getBook())) {
+                alreadyLoaned.increment();
+                throw new BusinessException(BOOK_ALREADY_LOANED);
+            }
+
+            Loan savedLoan = saveLoan(loan);
+            publishAvailability(savedLoan);
 
-        return loanRepository.save(loan);
+            return savedLoan;
+        } catch (DataIntegrityViolationException e) {
+            if (isOpenLoanConflict(e)) {
+                alreadyLoaned.increment();
+                throw new BusinessException(BOOK_ALREADY_LOANED, e);
+            }
+            throw e;
+        } finally {
+            lock.unlock();
+            LatencyTimers.record(saveTimer, start);
+        }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Loan> findById(Long idLoan) {
         return loanRepository.findById(idLoan);
     }
 
+    /**
+     * Announces the book's availability only when the loan really changed state, so a retried
+     * return of an old loan cannot free a book that is out on a newer one.
+     */
     @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return loanRepository.save(loan);
+        long start = System.nanoTime();
+        try {
+            Optional<Boolean> storedReturned = loanRepository.findReturnedById(loan.getLoanId());
+            Loan savedLoan = saveLoan(loan);
+
+            if (storedReturned.isPresent() && !storedReturned.get().equals(savedLoan.getReturned())) {
+                publishAvailability(savedLoan);
+            }
+
+            return savedLoan;
+        } finally {
+            LatencyTimers.record(updateTimer, start);
+        }
     }
 
+    /**
+     * Returns every open loan among {@code loanIds}, and the open loan of every ISBN, in one
+     * transaction. Each batch costs one lookup and one set-based {@code UPDATE}, however many loans
+     * it holds. The lookup locks the loans it reads, so a loan returned concurrently is either
+     * returned before the lookup, and reported as such, or waits for this transaction.
+     */
+    @Override
+    @Transactional
+    public LoanReturnResult returnLoans(Collection<Long> loanIds, Collection<String> isbns) {
+        LoanReturnResult result = new LoanReturnResult();
+        List<Long> returnedBookIds = new ArrayList<>();
+
+        for (List<Long> batch : batches(loanIds)) {
+            Map<Long, LoanState> states = loanRepository.findStates(batch).stream()
+                    .collect(Collectors.toMap(LoanState::getLoanId, Function.identity()));
+
+            returnedBookIds.addAll(markReturned(states.values()));
+
+            for (Long loanId : batch) {
+                LoanState state = states.get(loanId);
+
+                if (state == null) {
+                    result.add(loanId, null, Outcome.NOT_FOUND);
+                } else {
+                    result.add(loanId, state.getIsbn(), state.getReturned() ? Outcome.ALREADY_RETURNED : Outcome.RETURNED);
+                }
+            }
+        }
+
+        for (List<String> batch : batches(isbns)) {
+            // the open-loan index leaves at most one open loan per book
+            Map<String, LoanState> states = loanRepository.findOpenStatesByIsbn(batch).stream()
+                    .collect(Collectors.toMap(LoanState::getIsbn, Function.identity()));
+
+            returnedBookIds.addAll(markReturned(states.values()));
+
+            for (String isbn : batch) {
+                LoanState state = states.get(isbn);
+
+                if (state == null) {
+                    result.add(null, isbn, Outcome.NOT_LOANED);
+                } else {
+                    result.add(state.getLoanId(), isbn, Outcome.RETURNED);
+                }
+            }
+        }
+
+        if (!returnedBookIds.isEmpty()) {
+            eventPublisher.publishEvent(new BooksReturnedEvent(returnedBookIds));
+        }
+
+        return result;
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<LoanHistoryEntry> findHistory(LoanHistoryFilter filter, LoanKeyset keyset, int size) {
+        LocalDate overdueCutoff = LocalDate.now().minusDays(overdueDays);
+        List<LoanHistoryEntry> entries = loanRepository.findHistory(filter, overdueCutoff, keyset, size + 1);
+
+        boolean hasNext = entries.size() > size;
+        if (hasNext) {
+            entries = entries.subList(0, size);
+        }
+
+        return new SliceImpl<>(entries, PageRequest.of(0, size), hasNext);
+    }
+
+    private boolean hasOpenLoan(Book book) {
+        long start = System.nanoTime();
+        try {
+            return loanRepository.existsByBookAndReturnedFalse(book);
+        } finally {
+            LatencyTimers.record(openLoanQueryTimer, start);
+        }
+    }
+
+    private Loan saveLoan(Loan loan) {
+        long start = System.nanoTime();
+        try {
+            return loanRepository.save(loan);
+        } finally {
+            LatencyTimers.record(saveQueryTimer, start);
+        }
+    }
+
+    /**
+     * @return the ids of the books whose loans this call returned
+     */
+    private List<Long> markReturned(Collection<LoanState> states) {
+        List<LoanState> openLoans = states.stream()
+                .filter(state -> !state.getReturned())
+                .collect(Collectors.toList());
+
+        if (!openLoans.isEmpty()) {
+            int returned = loanRepository.markReturned(openLoans.stream().map(LoanState::getLoanId).collect(Collectors.toList()));
+
+            // the loans are locked since they were read open, so each of them must have changed
+            if (returned != openLoans.size()) {
+                throw new IllegalStateException(String.format("Returned %d of %d open loans", returned, openLoans.size()));
+            }
+        }
+
+        return openLoans.stream().map(LoanState::getBookId).collect(Collectors.toList());
+    }
+
+    private void publishAvailability(Loan loan) {
+        Long bookId = loan.getBook().getId();
+
+        if (Boolean.TRUE.equals(loan.getReturned())) {
+            eventPublisher.publishEvent(new BooksReturnedEvent(bookId));
+        } else {
+            eventPublisher.publishEvent(new BookLoanedEvent(bookId));
+        }
+    }
+
+    private <T> List<List<T>> batches(Collection<T> values) {
+        List<T> distinct = values == null ? new ArrayList<>() : new ArrayList<>(new LinkedHashSet<>(values));
+        List<List<T>> batches = new ArrayList<>();
+
+        for (int from = 0; from < distinct.size(); from += returnBatchSize) {
+            batches.add(distinct.subList(from, Math.min(from + returnBatchSize, distinct.size())));
+        }
+        return batches;
+    }
+
+    private Lock lockFor(Book book) {
+        int hash = Long.hashCode(book.getId()) * 0x9E3779B9;
+
+        return bookLocks[Math.floorMod(hash ^ (hash >>> 16), bookLocks.length)];
+    }
+
+    private boolean isOpenLoanConflict(DataIntegrityViolationException e) {
+        if (!(e.getCause() instanceof ConstraintViolationException)) {
+            return false;
+        }
+
+        String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+
+        return constraintName != null
+                && constraintName.toLowerCase().contains(LoanRepository.OPEN_LOAN_UNIQUE_INDEX);
+    }
 }
@@ -0,0 +1,17 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
+@Component
+public class LoggingMailTransport implements MailTransport {
+
+    @Override
+    public void send(List<MailMessage> batch) {
+        batch.forEach(message ->
+                log.info("ENVIANDO E-MAIL PARA: {}\n{}", message.getRecipient(), message.getBody()));
+    }
+}
@@ -0,0 +1,15 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class MailMessage {
+
+    private final String recipient;
+
+    private final String body;
+}
@@ -0,0 +1,12 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import java.util.List;
+
+/**
+ * Delivers a batch of messages over one connection to the mail server. Throwing fails the whole
+ * batch, which the caller retries.
+ */
+public interface MailTransport {
+
+    void send(List<MailMessage> batch);
+}
@@ -0,0 +1,18 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.iagosaito.libraryapi.domain.model.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveBookService {
+    Mono<Book> save(Book book);
+
+    Mono<Book> findById(Long bookId);
+
+    Mono<Void> delete(Book book);
+
+    Mono<Page<Book>> filter(Book book, Pageable pageable);
+
+    Mono<Book> findByIsbn(String isbn);
+}
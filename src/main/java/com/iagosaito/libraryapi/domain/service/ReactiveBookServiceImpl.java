@@ -0,0 +1,136 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.iagosaito.libraryapi.domain.event.BookDeletedEvent;
+import com.iagosaito.libraryapi.domain.event.BookSavedEvent;
+import com.iagosaito.libraryapi.domain.exception.BookNotFoundException;
+import com.iagosaito.libraryapi.domain.exception.BusinessException;
+import com.iagosaito.libraryapi.domain.exception.EntityInUseException;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.repository.ReactiveBookRepository;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Objects;
+
+@Service
+@Profile("reactive")
+public class ReactiveBookServiceImpl implements ReactiveBookService {
+
+    private ReactiveBookRepository bookRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private Cache isbnCache;
+
+    public ReactiveBookServiceImpl(ReactiveBookRepository bookRepository, ApplicationEventPublisher eventPublisher,
+                                   CacheManager cacheManager) {
+        this.bookRepository = bookRepository;
+        this.eventPublisher = eventPublisher;
+        this.isbnCache = Objects.requireNonNull(cacheManager.getCache(BookRepository.ISBN_CACHE));
+    }
+
+    @Override
+    public Mono<Book> save(Book book) {
+        Mono<Book> savedBook = book.getId() == null
+                ? bookRepository.insert(book)
+                : update(book);
+
+        // evicted once the write is done, as @CacheEvict would only see the unsubscribed Mono
+        return savedBook
+                .doOnNext(saved -> {
+                    evictIsbn(saved.getIsbn());
+                    eventPublisher.publishEvent(new BookSavedEvent(saved));
+                })
+                .onErrorMap(this::isDuplicatedIsbn, e -> new BusinessException("ISBN já cadastrado", e));
+    }
+
+    @Override
+    public Mono<Book> findById(Long bookId) {
+        return bookRepository.findById(bookId);
+    }
+
+    @Override
+    public Mono<Void> delete(Book book) {
+        if (book == null || book.getId() == null) {
+            return Mono.error(new IllegalArgumentException("ID cannot be null!!"));
+        }
+
+        return bookRepository.deleteById(book.getId())
+                .onErrorMap(DataIntegrityViolationException.class, e -> new EntityInUseException(
+                        String.format("Book with id %s cannot be deleted, because it's in use", book.getId())))
+                .flatMap(rows -> rows == 0
+                        ? Mono.error(new BookNotFoundException(book.getId()))
+                        : Mono.fromRunnable(() -> {
+                            evictIsbn(book.getIsbn());
+                            eventPublisher.publishEvent(new BookDeletedEvent(book.getId()));
+                        }));
+    }
+
+    @Override
+    public Mono<Page<Book>> filter(Book book, Pageable pageable) {
+        // one query after the other: zipping them would hold two pooled connections per request
+        return bookRepository.findAll(book, pageable)
+                .collectList()
+                .flatMap(books -> isLastPage(books, pageable)
+                        ? Mono.just(new PageImpl<>(books, pageable, pageable.getOffset() + books.size()))
+                        : bookRepository.count(book).map(total -> new PageImpl<>(books, pageable, total)));
+    }
+
+    @Override
+    public Mono<Book> findByIsbn(String isbn) {
+        return bookRepository.findByIsbn(isbn);
+    }
+
+    /**
+     * Same shortcut Spring Data takes for JPA pages: a partial page is the last one, so the total
+     * is known without counting.
+     */
+    private boolean isLastPage(List<Book> books, Pageable pageable) {
+        return books.size() < pageable.getPageSize() && (pageable.getOffset() == 0 || !books.isEmpty());
+    }
+
+    /**
+     * Reads the stored book first: its ISBN is the one to evict when the update changes it, and
+     * once it is known to exist, a book the update did not match changed since it was read, like a
+     * stale JPA {@code @Version}.
+     */
+    private Mono<Book> update(Book book) {
+        if (book.getVersion() == null) {
+            return Mono.error(new IllegalArgumentException("Version cannot be null!!"));
+        }
+
+        return bookRepository.findById(book.getId())
+                .switchIfEmpty(Mono.error(() -> new BookNotFoundException(book.getId())))
+                .flatMap(stored -> bookRepository.update(book)
+                        .switchIfEmpty(Mono.error(() -> new OptimisticLockingFailureException(
+                                String.format("Book with id %s was modified by another request", book.getId()))))
+                        .map(version -> {
+                            evictIsbn(stored.getIsbn());
+                            book.setVersion(version);
+                            return book;
+                        }));
+    }
+
+    private void evictIsbn(String isbn) {
+        if (isbn != null) {
+            isbnCache.evict(isbn);
+        }
+    }
+
+    private boolean isDuplicatedIsbn(Throwable e) {
+        return e instanceof DataIntegrityViolationException
+                && e.getMessage() != null
+                && e.getMessage().toLowerCase().contains(BookRepository.ISBN_UNIQUE_INDEX);
+    }
+}
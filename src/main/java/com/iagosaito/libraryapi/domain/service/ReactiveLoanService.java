@@ -0,0 +1,12 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.iagosaito.libraryapi.domain.model.Loan;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveLoanService {
+    Mono<Loan> save(Loan loan);
+
+    Mono<Loan> findById(Long idLoan);
+
+    Mono<Loan> update(Loan loan);
+}
@@ -0,0 +1,90 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import com.iagosaito.libraryapi.domain.event.BookLoanedEvent;
+import com.iagosaito.libraryapi.domain.event.BooksReturnedEvent;
+import com.iagosaito.libraryapi.domain.exception.BusinessException;
+import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.LoanRepository;
+import com.iagosaito.libraryapi.domain.repository.ReactiveLoanRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+@Service
+@Profile("reactive")
+public class ReactiveLoanServiceImpl implements ReactiveLoanService {
+
+    private ReactiveLoanRepository loanRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    public ReactiveLoanServiceImpl(ReactiveLoanRepository loanRepository, ApplicationEventPublisher eventPublisher) {
+        this.loanRepository = loanRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public Mono<Loan> save(Loan loan) {
+        return loanRepository.existsOpenLoan(loan.getBook().getId())
+                .flatMap(loaned -> {
+                    if (loaned) {
+                        return Mono.error(new BusinessException("Book already loaned"));
+                    }
+
+                    // what Loan#prePersist does on the JPA side
+                    loan.setLocalDate(LocalDate.now());
+                    if (loan.getReturned() == null) {
+                        loan.setReturned(false);
+                    }
+
+                    return loanRepository.insert(loan);
+                })
+                .doOnNext(this::publishAvailability)
+                .onErrorMap(this::isOpenLoanConflict, e -> new BusinessException("Book already loaned", e));
+    }
+
+    @Override
+    public Mono<Loan> findById(Long idLoan) {
+        return loanRepository.findById(idLoan);
+    }
+
+    /**
+     * Each statement commits on its own, so the availability event goes out once the update that
+     * changed the loan's state is done, as it does after commit on the JPA side.
+     */
+    @Override
+    public Mono<Loan> update(Loan loan) {
+        return loanRepository.updateReturned(loan)
+                .flatMap(changed -> loanRepository.update(loan)
+                        .filter(rows -> rows > 0)
+                        .map(rows -> {
+                            if (changed > 0) {
+                                publishAvailability(loan);
+                            }
+                            return loan;
+                        }));
+    }
+
+    private void publishAvailability(Loan loan) {
+        if (loan.getBook() == null) {
+            return;
+        }
+
+        Long bookId = loan.getBook().getId();
+        if (Boolean.TRUE.equals(loan.getReturned())) {
+            eventPublisher.publishEvent(new BooksReturnedEvent(bookId));
+        } else {
+            eventPublisher.publishEvent(new BookLoanedEvent(bookId));
+        }
+    }
+
+    private boolean isOpenLoanConflict(Throwable e) {
+        return e instanceof DataIntegrityViolationException
+                && e.getMessage() != null
+                && e.getMessage().toLowerCase().contains(LoanRepository.OPEN_LOAN_UNIQUE_INDEX);
+    }
+}
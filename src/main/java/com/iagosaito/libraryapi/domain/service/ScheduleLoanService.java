@@ -1,20 +1,171 @@
 package com.iagosaito.libraryapi.domain.service;
 
-import lombok.RequiredArgsConstructor;
+import com.iagosaito.libraryapi.domain.exception.EmailQueueFullException;
+import com.iagosaito.libraryapi.domain.repository.LoanRepository;
+import com.iagosaito.libraryapi.domain.repository.OverdueLoan;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Daily overdue notice. Open loans older than {@code library.loans.overdue.days} are read in keyset
+ * pages ordered by customer email, so no transaction or page outlives a single query. Each
+ * customer's loans are queued as one email on the {@link EmailService}, whose own senders deliver
+ * it. A notice the full mail queue turns away is offered again until it fits, so the scan keeps
+ * reading no faster than mail can go out and never drops one; it runs off the request path, so
+ * waiting holds no client.
+ * Overdue loans without a customer email, or with a blank one, cannot be notified; they are counted
+ * and logged instead of being handed to the mail transport to fail on every run.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class ScheduleLoanService {
 
     private static final String CRON_LOAN_DEBT = "0 0 0 1/1 * ?";
-    private static final String EMAIL = "iago@tddcourse.com";
+
+    private static final String MESSAGE = "Atenção! Você tem empréstimos atrasados. Favor devolver os livros:";
+
+    private final LoanRepository loanRepository;
 
     private final EmailService emailService;
 
+    private final int overdueDays;
+
+    private final int pageSize;
+
+    private final Timer scanTimer;
+
+    private final Counter overdueLoans;
+
+    private final Counter unreachableLoans;
+
+    private final Counter queuedNotifications;
+
+    private final Counter failedNotifications;
+
+    private final AtomicLong loansPerSecond = new AtomicLong();
+
+    public ScheduleLoanService(LoanRepository loanRepository,
+                               EmailService emailService,
+                               MeterRegistry meterRegistry,
+                               @Value("${library.loans.overdue.days:7}") int overdueDays,
+                               @Value("${library.loans.overdue.page-size:1000}") int pageSize) {
+        this.loanRepository = loanRepository;
+        this.emailService = emailService;
+        this.overdueDays = overdueDays;
+        this.pageSize = pageSize;
+
+        this.scanTimer = meterRegistry.timer("library.loans.overdue.scan");
+        this.overdueLoans = meterRegistry.counter("library.loans.overdue");
+        this.unreachableLoans = meterRegistry.counter("library.loans.overdue.unreachable");
+        this.queuedNotifications = meterRegistry.counter("library.loans.overdue.notifications", "outcome", "queued");
+        this.failedNotifications = meterRegistry.counter("library.loans.overdue.notifications", "outcome", "failed");
+        meterRegistry.gauge("library.loans.overdue.scan.throughput", loansPerSecond);
+    }
+
     @Scheduled(cron = CRON_LOAN_DEBT)
     public void notifyLoanDebt() {
-        emailService.sendEmail(EMAIL);
+        scanTimer.record(this::scanOverdueLoans);
+    }
+
+    private void scanOverdueLoans() {
+        long start = System.nanoTime();
+        LocalDate cutoff = LocalDate.now().minusDays(overdueDays);
+
+        long loans = 0;
+        long customers = 0;
+        long withoutEmail = 0;
+
+        String lastEmail = "";
+        Long lastLoanId = 0L;
+        List<OverdueLoan> customerLoans = new ArrayList<>();
+        List<OverdueLoan> page;
+
+        do {
+            page = loanRepository.findOverdue(cutoff, lastEmail, lastLoanId, PageRequest.of(0, pageSize));
+
+            for (OverdueLoan loan : page) {
+                if (!StringUtils.hasText(loan.getCustomerEmail())) {
+                    withoutEmail++;
+                    continue;
+                }
+                if (!customerLoans.isEmpty()
+                        && !customerLoans.get(0).getCustomerEmail().equals(loan.getCustomerEmail())) {
+                    notifyCustomer(customerLoans);
+                    customers++;
+                    customerLoans = new ArrayList<>();
+                }
+                customerLoans.add(loan);
+            }
+
+            if (!page.isEmpty()) {
+                OverdueLoan last = page.get(page.size() - 1);
+                lastEmail = last.getCustomerEmail();
+                lastLoanId = last.getLoanId();
+                loans += page.size();
+            }
+        } while (page.size() == pageSize);
+
+        if (!customerLoans.isEmpty()) {
+            notifyCustomer(customerLoans);
+            customers++;
+        }
+
+        loans -= withoutEmail;
+        withoutEmail += loanRepository.countOverdueWithoutEmail(cutoff);
+        if (withoutEmail > 0) {
+            unreachableLoans.increment(withoutEmail);
+            log.warn("{} overdue loans have no customer email and were not notified", withoutEmail);
+        }
+
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        overdueLoans.increment(loans);
+        loansPerSecond.set(loans * 1000 / elapsedMillis);
+
+        log.info("Queued notices to {} customers about {} overdue loans in {} ms ({} loans/s)",
+                customers, loans, elapsedMillis, loansPerSecond.get());
+    }
+
+    private void notifyCustomer(List<OverdueLoan> loans) {
+        String email = loans.get(0).getCustomerEmail();
+        String message = loans.stream()
+                .map(loan -> String.format("- %s (ISBN %s), emprestado em %s", loan.getTitle(), loan.getIsbn(),
+                        loan.getLocalDate()))
+                .collect(Collectors.joining("\n", MESSAGE + "\n", ""));
+
+        try {
+            queue(email, message);
+            queuedNotifications.increment();
+        } catch (RuntimeException e) {
+            failedNotifications.increment();
+            log.warn("Could not notify {} about {} overdue loans", email, loans.size(), e);
+        }
+    }
+
+    private void queue(String email, String message) {
+        while (true) {
+            try {
+                emailService.sendEmail(email, message);
+                return;
+            } catch (EmailQueueFullException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                log.debug("Email queue full, offering the notice to {} again", email);
+            }
+        }
     }
 }
@@ -0,0 +1,103 @@
+package com.iagosaito.libraryapi.domain.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Collapses concurrent loads of the same key into one: the first caller (the leader) runs the load
+ * and every caller arriving while it runs (the followers) waits for its result instead of loading
+ * again. Once the load finishes the key is free and the next caller loads afresh, so nothing is
+ * cached beyond the duration of one load.
+ * <p>
+ * Joining a load in progress is a plain map read; only the leader writes to the map. Callers are
+ * counted as {@code library.books.single-flight} by role, so followers over all callers is the
+ * share of loads that were saved.
+ * <p>
+ * The loader takes the key, so callers can pass one function held in a field instead of a lambda
+ * capturing the key, which would be allocated on every call.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+
+    private final UnaryOperator<V> copy;
+
+    private final Counter leaders;
+
+    private final Counter followers;
+
+    /**
+     * {@code copy} gives each follower an instance of its own, taken from a snapshot of what the leader
+     * loaded, so no two callers ever share a mutable value.
+     */
+    SingleFlight(MeterRegistry meterRegistry, String method, UnaryOperator<V> copy) {
+        this.copy = copy;
+        this.leaders = meterRegistry.counter("library.books.single-flight", "method", method, "role", "leader");
+        this.followers = meterRegistry.counter("library.books.single-flight", "method", method, "role", "follower");
+    }
+
+    V execute(K key, Function<K, V> loader) {
+        if (key == null) {
+            return loader.apply(key);
+        }
+
+        CompletableFuture<V> load = loads.get(key);
+        if (load == null) {
+            CompletableFuture<V> ownLoad = new CompletableFuture<>();
+
+            load = loads.putIfAbsent(key, ownLoad);
+            if (load == null) {
+                return lead(key, ownLoad, loader);
+            }
+        }
+
+        followers.increment();
+        return copy.apply(await(load));
+    }
+
+    /**
+     * Lets the next caller for {@code key} load afresh instead of joining a load that may have read
+     * the row before a write to it.
+     */
+    void forget(K key) {
+        if (key != null) {
+            loads.remove(key);
+        }
+    }
+
+    private V lead(K key, CompletableFuture<V> load, Function<K, V> loader) {
+        leaders.increment();
+        try {
+            V value = loader.apply(key);
+            load.complete(copy.apply(value));
+
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+-- loan history without a customer pages over every loan newest first, seeking on (local_date,
+-- loan_id) after the previous page; this index holds them in that order, as ix_loan_customer_date
+-- does within one customer
+CREATE INDEX ix_loan_date ON loan (local_date DESC, loan_id DESC);
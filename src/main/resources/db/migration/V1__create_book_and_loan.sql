@@ -0,0 +1,15 @@
+CREATE TABLE book (
+    id     BIGINT AUTO_INCREMENT PRIMARY KEY,
+    title  VARCHAR(255),
+    author VARCHAR(255),
+    isbn   VARCHAR(255)
+);
+
+CREATE TABLE loan (
+    loan_id    BIGINT AUTO_INCREMENT PRIMARY KEY,
+    customer   VARCHAR(255),
+    book_id    BIGINT,
+    local_date DATE,
+    returned   BOOLEAN,
+    CONSTRAINT fk_loan_book FOREIGN KEY (book_id) REFERENCES book (id)
+);
@@ -0,0 +1,9 @@
+-- isbn lookups and the duplicate check rely on this index instead of a full scan
+CREATE UNIQUE INDEX ux_book_isbn ON book (isbn);
+
+-- "is this book loaned?" becomes an index probe on (book_id, returned = false)
+UPDATE loan SET returned = FALSE WHERE returned IS NULL;
+ALTER TABLE loan ALTER COLUMN returned SET DEFAULT FALSE;
+ALTER TABLE loan ALTER COLUMN returned SET NOT NULL;
+
+CREATE INDEX ix_loan_book_returned ON loan (book_id, returned);
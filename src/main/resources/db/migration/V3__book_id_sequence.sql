@@ -0,0 +1,4 @@
+-- pooled sequence so Hibernate can batch book inserts, which IDENTITY ids prevent
+CREATE SEQUENCE book_seq START WITH 1 INCREMENT BY 50;
+
+ALTER TABLE book ALTER COLUMN id BIGINT NOT NULL DEFAULT NEXT VALUE FOR book_seq;
@@ -0,0 +1,3 @@
+-- keyset pages seek on (sort key, id) and read in index order; isbn is covered by ux_book_isbn
+CREATE INDEX ix_book_title_id ON book (title, id);
+CREATE INDEX ix_book_author_id ON book (author, id);
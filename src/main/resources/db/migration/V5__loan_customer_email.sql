@@ -0,0 +1,5 @@
+ALTER TABLE loan ADD COLUMN customer_email VARCHAR(255);
+
+-- the overdue scan walks loans in (customer_email, loan_id) order one keyset page at a time;
+-- returned and local_date ride along so the filter is checked without touching the table
+CREATE INDEX ix_loan_customer_email ON loan (customer_email, loan_id, returned, local_date);
@@ -0,0 +1,2 @@
+-- optimistic lock counter, also served to clients as the book's ETag
+ALTER TABLE book ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,5 @@
+-- at most one open loan per book. H2 has no partial indexes, so open_book_id carries book_id while
+-- the loan is open and NULL once it is returned; the unique index then only constrains open loans
+ALTER TABLE loan ADD COLUMN open_book_id BIGINT AS (CASE WHEN returned THEN NULL ELSE book_id END);
+
+CREATE UNIQUE INDEX ux_loan_open_book ON loan (open_book_id);
@@ -0,0 +1,3 @@
+-- a customer's loan history is paged newest first, seeking on (local_date, loan_id) after the
+-- previous page, so the index already holds the rows in the order the page reads them
+CREATE INDEX ix_loan_customer_date ON loan (customer, local_date DESC, loan_id DESC);
@@ -0,0 +1,6 @@
+-- the overdue scan only reads open loans; leading with returned keeps its seek on (customer_email,
+-- loan_id) inside the open ones instead of stepping over every returned loan of each customer.
+-- The scan orders by returned as well, so H2 still reads its pages in index order
+DROP INDEX ix_loan_customer_email;
+
+CREATE INDEX ix_loan_open_customer_email ON loan (returned, customer_email, loan_id, local_date);
@@ -1,13 +1,23 @@
 package com.iagosaito.libraryapi.api.resources.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.iagosaito.libraryapi.api.controller.BookController;
 import com.iagosaito.libraryapi.api.dto.BookModel;
 import com.iagosaito.libraryapi.config.LibraryTestConfig;
+import com.iagosaito.libraryapi.core.BinaryFormatConfig;
 import com.iagosaito.libraryapi.domain.exception.BookNotFoundException;
 import com.iagosaito.libraryapi.domain.exception.BusinessException;
 import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookKeyset;
+import com.iagosaito.libraryapi.domain.service.BookAvailabilityService;
+import com.iagosaito.libraryapi.domain.service.BookExportService;
+import com.iagosaito.libraryapi.domain.service.BookFileFormat;
+import com.iagosaito.libraryapi.domain.service.BookImportResult;
+import com.iagosaito.libraryapi.domain.service.BookImportService;
+import com.iagosaito.libraryapi.domain.service.BookSearchService;
 import com.iagosaito.libraryapi.domain.service.BookService;
 import com.iagosaito.libraryapi.domain.service.LoanService;
 import org.hamcrest.Matchers;
@@ -16,7 +26,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 import org.mockito.internal.matchers.Any;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -25,6 +34,9 @@ import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
@@ -33,10 +45,18 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -44,7 +64,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(value = BookController.class)
 @ActiveProfiles("test")
 @AutoConfigureMockMvc
-@Import(LibraryTestConfig.class)
+@Import({LibraryTestConfig.class, BinaryFormatConfig.class})
 public class BookControllerTest {
 
     private static String BOOK_URI = "/api/books";
@@ -55,6 +75,18 @@ public class BookControllerTest {
     @MockBean
     private BookService bookService;
 
+    @MockBean
+    private BookImportService bookImportService;
+
+    @MockBean
+    private BookExportService bookExportService;
+
+    @MockBean
+    private BookSearchService bookSearchService;
+
+    @MockBean
+    private BookAvailabilityService bookAvailabilityService;
+
     @Test
     public void Given_Book_When_PostBook_Then_CreateNewBook() throws Exception {
 
@@ -174,6 +206,8 @@ public class BookControllerTest {
 
         mockMvc.perform(request)
                 .andExpect(status().isNoContent());
+
+        Mockito.verify(bookService, Mockito.times(1)).delete(Mockito.any(Book.class));
     }
 
     @Test
@@ -212,6 +246,28 @@ public class BookControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void Update_With_DuplicatedIsbn_Then_ReturnStatus400() throws Exception {
+
+        Book updatingBook = Book.builder().id(1L).author("Iago").title("A").isbn("1").version(0L).build();
+
+        BDDMockito.given(bookService.findById(1L))
+                .willReturn(Optional.of(updatingBook));
+
+        BDDMockito.given(bookService.save(Mockito.any(Book.class)))
+                .willThrow(new BusinessException("ISBN já cadastrado"));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_URI.concat("/1"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(createNewBook()));
+
+        mockMvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors", hasSize(1)))
+                .andExpect(jsonPath("errors[0]").value("ISBN já cadastrado"));
+    }
+
     @Test
     public void Update_ValidBook_Then_ReturnBookAndStatus200() throws Exception {
 
@@ -266,7 +322,7 @@ public class BookControllerTest {
                 .build();
 
         BDDMockito.given(bookService.filter(Mockito.any(Book.class), Mockito.any(Pageable.class)))
-                .willReturn(new PageImpl<>(Collections.singletonList(book), PageRequest.of(0, 1), 1));
+                .willReturn(new PageImpl<>(Collections.singletonList(book), PageRequest.of(0, 20), 1));
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .get(BOOK_URI.concat(String.format("?title=%s&author=%s", book.getTitle(), book.getAuthor())))
@@ -276,8 +332,338 @@ public class BookControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", hasSize(1)))
                 .andExpect(jsonPath("totalElements").value(1))
-                .andExpect(jsonPath("pageable.pageSize").value(20))
-                .andExpect(jsonPath("pageable.pageNumber").value(0));
+                .andExpect(jsonPath("totalPages").value(1))
+                .andExpect(jsonPath("size").value(20))
+                .andExpect(jsonPath("number").value(0))
+                .andExpect(jsonPath("numberOfElements").value(1))
+                .andExpect(jsonPath("first").value(true))
+                .andExpect(jsonPath("last").value(true))
+                .andExpect(jsonPath("pageable").doesNotExist())
+                .andExpect(jsonPath("sort").doesNotExist());
+    }
+
+    @Test
+    public void WhenFilterBookAcceptingCbor_Then_ReturnCborPage() throws Exception {
+
+        Book book = Book.builder().id(1L).author("Iago").title("A").isbn("1").build();
+
+        BDDMockito.given(bookService.filter(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<>(Collections.singletonList(book), PageRequest.of(0, 20), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_URI)
+                .accept(MediaType.APPLICATION_CBOR);
+
+        byte[] body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode page = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertThat(page.path("content").path(0).path("isbn").asText()).isEqualTo("1");
+        assertThat(page.path("totalElements").asLong()).isEqualTo(1);
+    }
+
+    @Test
+    public void WhenFilterBookByKeyset_Then_ReturnSliceWithNextCursor() throws Exception {
+
+        Book first = Book.builder().id(1L).author("Iago").title("A").isbn("1").build();
+        Book second = Book.builder().id(2L).author("Iago").title("B").isbn("2").build();
+
+        BDDMockito.given(bookService.filter(Mockito.any(Book.class), Mockito.any(BookKeyset.class), Mockito.eq(2)))
+                .willReturn(new SliceImpl<>(Arrays.asList(first, second), PageRequest.of(0, 2), true));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_URI.concat("?paging=keyset&author=Iago&size=2&sort=title"))
+                .contentType(MediaType.APPLICATION_JSON);
+
+        String next = BookKeyset.first(Sort.by("title")).after(second).encode();
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)))
+                .andExpect(jsonPath("hasNext").value(true))
+                .andExpect(jsonPath("next").value(next))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+
+        Mockito.verify(bookService).filter(Mockito.any(Book.class),
+                Mockito.eq(BookKeyset.first(Sort.by("title"))), Mockito.eq(2));
+    }
+
+    @Test
+    public void WhenFilterBookWithCursor_Then_ContinueAfterLastRow() throws Exception {
+
+        String cursor = BookKeyset.first(Sort.by("title"))
+                .after(Book.builder().id(2L).title("B").build())
+                .encode();
+
+        BDDMockito.given(bookService.filter(Mockito.any(Book.class), Mockito.any(BookKeyset.class), Mockito.anyInt()))
+                .willReturn(new SliceImpl<>(Collections.emptyList()));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_URI.concat("?paging=keyset&cursor=" + cursor))
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("hasNext").value(false))
+                .andExpect(jsonPath("next").doesNotExist());
+
+        Mockito.verify(bookService).filter(Mockito.any(Book.class),
+                Mockito.eq(BookKeyset.decode(cursor)), Mockito.eq(20));
+    }
+
+    @Test
+    public void WhenFilterBookByKeysetWithBadCursorOrSort_Then_ReturnBadRequest() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_URI.concat("?paging=keyset&cursor=not-a-cursor")))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_URI.concat("?paging=keyset&sort=publisher")))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(bookService);
+    }
+
+    @Test
+    public void When_SearchBooks_Then_ReturnRankedBooks() throws Exception {
+
+        Book first = Book.builder().id(2L).author("Iago").title("The Adventures of Iago").isbn("2").build();
+        Book second = Book.builder().id(1L).author("Iago Saito").title("Other").isbn("1").build();
+
+        BDDMockito.given(bookSearchService.search("iago", 5))
+                .willReturn(Arrays.asList(first, second));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_URI.concat("/search?q=iago&limit=5")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("[0].id").value(2L))
+                .andExpect(jsonPath("[1].id").value(1L));
+    }
+
+    @Test
+    public void When_SearchBooksOverLimit_Then_ReturnBadRequest() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_URI.concat("/search?q=iago&limit=1000")))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(bookSearchService);
+    }
+
+    @Test
+    public void When_GetAvailability_Then_ReturnKnownBooksInOrder() throws Exception {
+
+        Map<Long, Boolean> availability = new LinkedHashMap<>();
+        availability.put(3L, false);
+        availability.put(1L, true);
+        BDDMockito.given(bookAvailabilityService.findAvailability(Arrays.asList(3L, 2L, 1L)))
+                .willReturn(availability);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_URI.concat("/availability?ids=3,2,1")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("[0].id").value(3L))
+                .andExpect(jsonPath("[0].available").value(false))
+                .andExpect(jsonPath("[1].id").value(1L))
+                .andExpect(jsonPath("[1].available").value(true));
+    }
+
+    @Test
+    public void When_GetAvailabilityOfTooManyBooks_Then_ReturnBadRequest() throws Exception {
+
+        String ids = LongStream.rangeClosed(1, 501)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_URI.concat("/availability?ids=" + ids)))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(bookAvailabilityService);
+    }
+
+    @Test
+    public void When_ImportNdjsonBooks_Then_ReturnImportResult() throws Exception {
+
+        BDDMockito.given(bookImportService.importBooks(Mockito.any(), Mockito.eq(BookFileFormat.NDJSON)))
+                .willReturn(new BookImportResult());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_URI.concat("/import"))
+                .contentType(BookFileFormat.NDJSON_VALUE)
+                .content("{\"title\":\"The Adventures of Iago\",\"author\":\"Iago\",\"isbn\":\"1\"}\n");
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(0))
+                .andExpect(jsonPath("rejected").value(0))
+                .andExpect(jsonPath("errors", hasSize(0)));
+    }
+
+    @Test
+    public void When_ImportCsvBooks_Then_ParseAsCsv() throws Exception {
+
+        BDDMockito.given(bookImportService.importBooks(Mockito.any(), Mockito.eq(BookFileFormat.CSV)))
+                .willReturn(new BookImportResult());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_URI.concat("/import"))
+                .contentType("text/csv;charset=UTF-8")
+                .content("title,author,isbn\nThe Adventures of Iago,Iago,1\n");
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk());
+
+        Mockito.verify(bookImportService).importBooks(Mockito.any(), Mockito.eq(BookFileFormat.CSV));
+    }
+
+    @Test
+    public void When_ExportBooksAsCsv_Then_StreamCsvAttachment() throws Exception {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_URI.concat("/export?format=csv"));
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", Matchers.startsWith(BookFileFormat.CSV_VALUE)))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"books.csv\""));
+
+        Mockito.verify(bookExportService).exportBooks(Mockito.any(), Mockito.eq(BookFileFormat.CSV));
+    }
+
+    @Test
+    public void When_ExportBooksInUnknownFormat_Then_ReturnBadRequest() throws Exception {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_URI.concat("/export?format=xml"));
+
+        mockMvc.perform(request)
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(bookExportService);
+    }
+
+    @Test
+    public void When_GetBookById_Then_ReturnVersionAsETag() throws Exception {
+
+        Book book = Book.builder()
+                .id(1L)
+                .author("Iago")
+                .title("The Adventures of Iago")
+                .isbn("1")
+                .version(3L)
+            .build();
+
+        BDDMockito.given(bookService.findById(1L))
+                .willReturn(Optional.of(book));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_URI.concat("/1")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    public void When_GetBookById_With_CurrentETag_Then_ReturnNotModified() throws Exception {
+
+        BDDMockito.given(bookService.findVersionById(1L))
+                .willReturn(Optional.of(3L));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_URI.concat("/1"))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"");
+
+        mockMvc.perform(request)
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+
+        Mockito.verify(bookService, Mockito.never()).findById(Mockito.anyLong());
+    }
+
+    @Test
+    public void When_GetBookById_With_StaleETag_Then_ReturnBook() throws Exception {
+
+        Book book = Book.builder()
+                .id(1L)
+                .author("Iago")
+                .title("The Adventures of Iago")
+                .isbn("1")
+                .version(4L)
+            .build();
+
+        BDDMockito.given(bookService.findVersionById(1L))
+                .willReturn(Optional.of(4L));
+        BDDMockito.given(bookService.findById(1L))
+                .willReturn(Optional.of(book));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_URI.concat("/1"))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"");
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("title").value(book.getTitle()));
+    }
+
+    @Test
+    public void Update_With_StaleIfMatch_Then_ReturnStatus412() throws Exception {
+
+        Book book = Book.builder()
+                .id(1L)
+                .author("Some Author")
+                .title("Some Title")
+                .isbn("1")
+                .version(4L)
+            .build();
+
+        BDDMockito.given(bookService.findById(1L))
+                .willReturn(Optional.of(book));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_URI.concat("/1"))
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(createNewBook()));
+
+        mockMvc.perform(request)
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("errors", hasSize(1)));
+
+        Mockito.verify(bookService, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    public void Update_With_CurrentIfMatch_Then_ReturnNewETag() throws Exception {
+
+        Book book = Book.builder()
+                .id(1L)
+                .author("Some Author")
+                .title("Some Title")
+                .isbn("1")
+                .version(3L)
+            .build();
+
+        Book updatedBook = Book.builder()
+                .id(1L)
+                .author("Iago")
+                .title("The Adventures of Iago")
+                .isbn("1")
+                .version(4L)
+            .build();
+
+        BDDMockito.given(bookService.findById(1L))
+                .willReturn(Optional.of(book));
+        BDDMockito.given(bookService.save(Mockito.any()))
+                .willReturn(updatedBook);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_URI.concat("/1"))
+                .header(HttpHeaders.IF_MATCH, "W/\"2\", \"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(createNewBook()));
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
     }
 
     private BookModel createNewBook() {
@@ -0,0 +1,181 @@
+package com.iagosaito.libraryapi.api.resources.controller;
+
+import com.iagosaito.libraryapi.api.controller.BookController;
+import com.iagosaito.libraryapi.config.LibraryTestConfig;
+import com.iagosaito.libraryapi.core.ConcurrencyLimitConfig;
+import com.iagosaito.libraryapi.core.ConcurrencyLimitInterceptor;
+import com.iagosaito.libraryapi.core.ConcurrencyLimited;
+import com.iagosaito.libraryapi.core.GradientConcurrencyLimit;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.service.BookAvailabilityService;
+import com.iagosaito.libraryapi.domain.service.BookExportService;
+import com.iagosaito.libraryapi.domain.service.BookImportService;
+import com.iagosaito.libraryapi.domain.service.BookSearchService;
+import com.iagosaito.libraryapi.domain.service.BookService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(value = BookController.class, properties = {
+        "library.web.concurrency-limit.enabled=true",
+        "library.web.concurrency-limit.reads.initial-limit=4",
+        "library.web.concurrency-limit.retry-after=2s"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Import({LibraryTestConfig.class, ConcurrencyLimitConfig.class, SimpleMeterRegistry.class})
+public class ConcurrencyLimitTest {
+
+    private static final String BOOK_URI = "/api/books";
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private BookService bookService;
+
+    @MockBean
+    private BookImportService bookImportService;
+
+    @MockBean
+    private BookExportService bookExportService;
+
+    @MockBean
+    private BookSearchService bookSearchService;
+
+    @MockBean
+    private BookAvailabilityService bookAvailabilityService;
+
+    @Test
+    public void mustShedReadsOverTheLimitWithRetryAfter() throws Exception {
+        Book book = Book.builder().id(1L).author("Iago").title("The Adventures of Iago").isbn("1").version(0L).build();
+        BDDMockito.given(bookService.findById(1L)).willReturn(Optional.of(book));
+        GradientConcurrencyLimit reads = concurrencyLimitInterceptor.getLimit(ConcurrencyLimited.READS);
+        for (int i = 0; i < 4; i++) {
+            assertThat(reads.tryAcquire()).isTrue();
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_URI + "/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+                .andExpect(jsonPath("errors[0]").value("Too many reads in progress, retry later"));
+
+        assertThat(meterRegistry.get("library.http.concurrency.rejected").tag("group", "reads").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("library.http.concurrency.in-flight").tag("group", "reads").gauge().value())
+                .isEqualTo(4);
+
+        for (int i = 0; i < 4; i++) {
+            reads.release(MILLIS, System.nanoTime());
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BOOK_URI + "/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        assertThat(reads.getInFlight()).isZero();
+    }
+
+    @Test
+    public void mustKeepWritesOutOfTheReadLimit() throws Exception {
+        GradientConcurrencyLimit reads = concurrencyLimitInterceptor.getLimit(ConcurrencyLimited.READS);
+        while (reads.tryAcquire()) {
+            // fill the read limit
+        }
+
+        try {
+            mockMvc.perform(MockMvcRequestBuilders.delete(BOOK_URI + "/1"))
+                    .andExpect(status().isNotFound());
+            assertThat(concurrencyLimitInterceptor.getLimit(ConcurrencyLimited.WRITES).getInFlight()).isZero();
+        } finally {
+            for (int i = reads.getInFlight(); i > 0; i--) {
+                reads.release(MILLIS, System.nanoTime());
+            }
+        }
+    }
+
+    @Test
+    public void mustGrowWhileLatencyHoldsAndShrinkWhenItClimbs() {
+        GradientConcurrencyLimit limit = createLimit(20);
+
+        runWindows(limit, 50, MILLIS);
+        int grown = limit.getLimit();
+        assertThat(grown).isGreaterThan(20);
+
+        runWindows(limit, 5, 10 * MILLIS);
+        assertThat(limit.getLimit()).isLessThan(grown / 2);
+
+        runWindows(limit, 10, 100 * MILLIS);
+        assertThat(limit.getLimit()).isBetween(4, grown / 2);
+    }
+
+    @Test
+    public void mustNotGrowWhileMostOfTheLimitIsUnused() {
+        GradientConcurrencyLimit limit = createLimit(20);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+            limit.release(MILLIS, i * MILLIS);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    private static GradientConcurrencyLimit createLimit(int initialLimit) {
+        return GradientConcurrencyLimit.builder()
+                .initialLimit(initialLimit)
+                .minLimit(4)
+                .maxLimit(100)
+                .rttTolerance(1.5)
+                .smoothing(0.2)
+                .queueSize(4)
+                .window(Duration.ZERO)
+                .windowSamples(1)
+                .longWindow(600)
+                .build();
+    }
+
+    /**
+     * Runs the limit full, then finishes every request with {@code rttNanos}; each is a window of its own.
+     */
+    private static void runWindows(GradientConcurrencyLimit limit, int windows, long rttNanos) {
+        for (int window = 0; window < windows; window++) {
+            int running = 0;
+            while (limit.tryAcquire()) {
+                running++;
+            }
+            for (int i = 0; i < running; i++) {
+                limit.release(rttNanos, System.nanoTime());
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.iagosaito.libraryapi.api.resources.controller;
+
+import com.iagosaito.libraryapi.core.QueryCountConfig;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.repository.LoanRepository;
+import com.iagosaito.libraryapi.domain.service.BookAvailabilityService;
+import com.iagosaito.libraryapi.domain.service.BookFileFormat;
+import com.iagosaito.libraryapi.domain.service.BookIsbnFilter;
+import com.iagosaito.libraryapi.domain.service.BookSearchService;
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.QueryCountHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.persistence.EntityManagerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iagosaito.libraryapi.api.resources.repository.BookRepositoryTest.createNewBookWithoutId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The exact statements every book and loan endpoint sends to the database. A new lazy load, a
+ * missing join or a per-row query makes one of these fail. Sequence calls are not counted, since
+ * the pooled id generator only reaches the database every 50 inserts. Books saved by a test are
+ * already in the second-level cache, as they would be after being written through the api.
+ * The ISBN filter is rebuilt where a test needs it to know the books it saved.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "library.datasource.query-count.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class EndpointQueryCountTest {
+
+    private static final String BOOK_URI = "/api/books";
+
+    private static final String LOAN_URI = "/api/loans";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private BookIsbnFilter bookIsbnFilter;
+
+    @Autowired
+    private BookAvailabilityService bookAvailabilityService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    public void setup() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        loanRepository.deleteAllInBatch();
+        bookRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void saveBook() throws Exception {
+        perform(MockMvcRequestBuilders.post(BOOK_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Title\",\"author\":\"Author\",\"isbn\":\"qc-1\"}"))
+                .andExpect(status().isCreated());
+
+        assertStatements(0, 1, 0, 0);
+    }
+
+    @Test
+    public void importBooks() throws Exception {
+        bookRepository.save(createNewBookWithoutId("qc-1"));
+        bookIsbnFilter.rebuild();
+
+        String ndjson = IntStream.rangeClosed(1, 3)
+                .mapToObj(i -> "{\"title\":\"Title\",\"author\":\"Author\",\"isbn\":\"qc-" + i + "\"}")
+                .collect(Collectors.joining("\n"));
+
+        perform(MockMvcRequestBuilders.post(BOOK_URI + "/import")
+                .contentType(BookFileFormat.NDJSON_VALUE)
+                .content(ndjson))
+                .andExpect(status().isOk());
+
+        // one lookup for the ISBNs already there, the new rows go in a single JDBC batch
+        assertStatements(1, 1, 0, 0);
+    }
+
+    @Test
+    public void importNewBooks() throws Exception {
+        String ndjson = IntStream.rangeClosed(1, 3)
+                .mapToObj(i -> "{\"title\":\"Title\",\"author\":\"Author\",\"isbn\":\"qc-new-" + i + "\"}")
+                .collect(Collectors.joining("\n"));
+
+        perform(MockMvcRequestBuilders.post(BOOK_URI + "/import")
+                .contentType(BookFileFormat.NDJSON_VALUE)
+                .content(ndjson))
+                .andExpect(status().isOk());
+
+        // the ISBN filter rules every row out of the duplicate check
+        assertStatements(0, 1, 0, 0);
+    }
+
+    @Test
+    public void exportBooks() throws Exception {
+        saveBooks(3);
+
+        perform(MockMvcRequestBuilders.get(BOOK_URI + "/export"))
+                .andExpect(status().isOk());
+
+        assertStatements(1, 0, 0, 0);
+    }
+
+    @Test
+    public void searchBooks() throws Exception {
+        saveBooks(3);
+        bookSearchService.reindex();
+
+        perform(MockMvcRequestBuilders.get(BOOK_URI + "/search").param("q", "Teste"))
+                .andExpect(status().isOk());
+
+        assertStatements(1, 0, 0, 0);
+    }
+
+    @Test
+    public void bookAvailability() throws Exception {
+        List<Book> books = saveBooks(3);
+        bookAvailabilityService.reconcile();
+
+        perform(MockMvcRequestBuilders.get(BOOK_URI + "/availability")
+                .param("ids", books.stream().map(book -> book.getId().toString()).collect(Collectors.joining(","))))
+                .andExpect(status().isOk());
+
+        assertStatements(0, 0, 0, 0);
+    }
+
+    @Test
+    public void findBookById() throws Exception {
+        Book book = saveBooks(1).get(0);
+
+        perform(MockMvcRequestBuilders.get(BOOK_URI + "/" + book.getId()))
+                .andExpect(status().isOk());
+
+        assertStatements(0, 0, 0, 0);
+    }
+
+    @Test
+    public void findBookByIdNotCached() throws Exception {
+        Book book = saveBooks(1).get(0);
+        entityManagerFactory.getCache().evictAll();
+
+        perform(MockMvcRequestBuilders.get(BOOK_URI + "/" + book.getId()))
+                .andExpect(status().isOk());
+
+        assertStatements(1, 0, 0, 0);
+    }
+
+    @Test
+    public void findBookByIdNotModified() throws Exception {
+        Book book = saveBooks(1).get(0);
+
+        perform(MockMvcRequestBuilders.get(BOOK_URI + "/" + book.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + book.getVersion() + "\""))
+                .andExpect(status().isNotModified());
+
+        assertStatements(1, 0, 0, 0);
+    }
+
+    @Test
+    public void filterBooks() throws Exception {
+        saveBooks(3);
+
+        perform(MockMvcRequestBuilders.get(BOOK_URI).param("author", "Iago").param("size", "2"))
+                .andExpect(status().isOk());
+
+        assertStatements(2, 0, 0, 0);
+    }
+
+    @Test
+    public void filterBooksByKeyset() throws Exception {
+        saveBooks(3);
+
+        perform(MockMvcRequestBuilders.get(BOOK_URI).param("paging", "keyset").param("size", "2"))
+                .andExpect(status().isOk());
+
+        assertStatements(1, 0, 0, 0);
+    }
+
+    @Test
+    public void updateBook() throws Exception {
+        Book book = saveBooks(1).get(0);
+
+        perform(MockMvcRequestBuilders.put(BOOK_URI + "/" + book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"New Title\",\"author\":\"New Author\",\"isbn\":\"qc-1\"}"))
+                .andExpect(status().isOk());
+
+        assertStatements(0, 0, 1, 0);
+    }
+
+    @Test
+    public void deleteBook() throws Exception {
+        Book book = saveBooks(1).get(0);
+
+        perform(MockMvcRequestBuilders.delete(BOOK_URI + "/" + book.getId()))
+                .andExpect(status().isNoContent());
+
+        assertStatements(0, 0, 0, 1);
+    }
+
+    @Test
+    public void createLoan() throws Exception {
+        saveBooks(1);
+
+        perform(MockMvcRequestBuilders.post(LOAN_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"isbn\":\"qc-1\",\"customer\":\"Fulano\",\"customerEmail\":\"fulano@library.com\"}"))
+                .andExpect(status().isCreated());
+
+        assertStatements(2, 1, 0, 0);
+    }
+
+    @Test
+    public void returnLoan() throws Exception {
+        Loan loan = saveLoans(saveBooks(1)).get(0);
+
+        perform(MockMvcRequestBuilders.patch(LOAN_URI + "/" + loan.getLoanId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"returned\":true}"))
+                .andExpect(status().isNoContent());
+
+        // the loan, then its stored returned flag locked for the update
+        assertStatements(2, 0, 1, 0);
+    }
+
+    @Test
+    public void returnLoansInBulk() throws Exception {
+        List<Loan> loans = saveLoans(saveBooks(6));
+
+        String loanIds = loans.subList(0, 3).stream()
+                .map(loan -> String.valueOf(loan.getLoanId()))
+                .collect(Collectors.joining(","));
+
+        perform(MockMvcRequestBuilders.post(LOAN_URI + "/returns")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"loanIds\":[" + loanIds + "],\"isbns\":[\"qc-4\",\"qc-5\",\"qc-6\"]}"))
+                .andExpect(status().isOk());
+
+        assertStatements(2, 0, 2, 0);
+    }
+
+    @Test
+    public void loanHistory() throws Exception {
+        saveLoans(saveBooks(3));
+
+        perform(MockMvcRequestBuilders.get(LOAN_URI).param("customer", "Fulano").param("size", "2"))
+                .andExpect(status().isOk());
+
+        // one projection query for the page, books are joined rather than loaded
+        assertStatements(1, 0, 0, 0);
+    }
+
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        QueryCountHolder.clear();
+
+        return mockMvc.perform(request);
+    }
+
+    private static void assertStatements(long select, long insert, long update, long delete) {
+        QueryCount count = QueryCountHolder.get(QueryCountConfig.DATASOURCE_NAME);
+        if (count == null) {
+            count = new QueryCount();
+        }
+
+        assertThat(Arrays.asList(count.getSelect(), count.getInsert(), count.getUpdate(), count.getDelete()))
+                .describedAs("select, insert, update and delete statements")
+                .containsExactly(select, insert, update, delete);
+    }
+
+    private List<Book> saveBooks(int count) {
+        return bookRepository.saveAll(IntStream.rangeClosed(1, count)
+                .mapToObj(i -> createNewBookWithoutId("qc-" + i))
+                .collect(Collectors.toList()));
+    }
+
+    private List<Loan> saveLoans(List<Book> books) {
+        return loanRepository.saveAll(books.stream()
+                .map(book -> Loan.builder().book(book).customer("Fulano").customerEmail("fulano@library.com").build())
+                .collect(Collectors.toList()));
+    }
+}
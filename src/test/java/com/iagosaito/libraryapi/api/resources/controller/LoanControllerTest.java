@@ -3,10 +3,15 @@ package com.iagosaito.libraryapi.api.resources.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.iagosaito.libraryapi.api.controller.LoanController;
 import com.iagosaito.libraryapi.api.dto.LoanModel;
+import com.iagosaito.libraryapi.api.dto.LoanReturnInput;
 import com.iagosaito.libraryapi.api.dto.ReturnedLoanInput;
+import com.iagosaito.libraryapi.config.LibraryTestConfig;
 import com.iagosaito.libraryapi.domain.exception.BusinessException;
 import com.iagosaito.libraryapi.domain.model.Book;
 import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryEntry;
+import com.iagosaito.libraryapi.domain.repository.LoanKeyset;
+import com.iagosaito.libraryapi.domain.service.LoanReturnResult;
 import com.iagosaito.libraryapi.domain.service.LoanService;
 import com.iagosaito.libraryapi.domain.service.BookService;
 import org.junit.jupiter.api.Test;
@@ -15,6 +20,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -23,6 +31,8 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
@@ -35,6 +45,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(controllers = LoanController.class)
 @ActiveProfiles("test")
 @AutoConfigureMockMvc
+@Import(LibraryTestConfig.class)
 public class LoanControllerTest {
 
     private static String LOAN_URI = "/api/loans";
@@ -68,6 +79,10 @@ public class LoanControllerTest {
         mockMvc.perform(request)
                 .andExpect(status().isCreated())
                 .andExpect(content().string("1"));
+
+        verify(loanService).save(argThat(savingLoan ->
+                savingLoan.getBook() == book && "Fuzz Person".equals(savingLoan.getCustomer())
+                        && "fuzz@person.com".equals(savingLoan.getCustomerEmail())));
     }
 
     @Test
@@ -156,6 +171,93 @@ public class LoanControllerTest {
         verify(loanService, times(1)).findById(anyLong());
     }
 
+    @Test
+    public void GivenLoanIdsAndIsbns_WhenReturnInBulk_ReturnOutcomePerItem() throws Exception {
+
+        LoanReturnInput input = LoanReturnInput.builder()
+                .loanIds(Arrays.asList(1L, 2L))
+                .isbns(Collections.singletonList("1234"))
+            .build();
+
+        LoanReturnResult result = new LoanReturnResult();
+        result.getItems().addAll(Arrays.asList(
+                new LoanReturnResult.Item(1L, "1111", LoanReturnResult.Outcome.RETURNED),
+                new LoanReturnResult.Item(2L, null, LoanReturnResult.Outcome.NOT_FOUND),
+                new LoanReturnResult.Item(3L, "1234", LoanReturnResult.Outcome.RETURNED)));
+        given(loanService.returnLoans(input.getLoanIds(), input.getIsbns())).willReturn(result);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(LOAN_URI.concat("/returns"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(input));
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("items", hasSize(3)))
+                .andExpect(jsonPath("items[1].outcome").value("NOT_FOUND"))
+                .andExpect(jsonPath("items[1].isbn").doesNotExist());
+    }
+
+    @Test
+    public void GivenNoLoanIdsNorIsbns_WhenReturnInBulk_ReturnStatus400() throws Exception {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(LOAN_URI.concat("/returns"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}");
+
+        mockMvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors", hasSize(1)));
+
+        verify(loanService, never()).returnLoans(any(), any());
+    }
+
+    @Test
+    public void GivenCustomer_WhenGetHistory_ReturnSliceWithNextCursor() throws Exception {
+
+        LocalDate today = LocalDate.now();
+        LoanHistoryEntry newest = new LoanHistoryEntry(2L, "Iago Saito", null, "1234", "Descobridor dos 7 Mares", today, false);
+        LoanHistoryEntry older = new LoanHistoryEntry(1L, "Iago Saito", null, "4321", "Tim Maia", today.minusDays(3), true);
+
+        given(loanService.findHistory(any(), any(), anyInt()))
+                .willReturn(new SliceImpl<>(Arrays.asList(newest, older), PageRequest.of(0, 2), true));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_URI)
+                .param("customer", "Iago Saito")
+                .param("overdue", "true")
+                .param("size", "2");
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)))
+                .andExpect(jsonPath("content[0].isbn").value("1234"))
+                .andExpect(jsonPath("content[1].localDate").value(today.minusDays(3).toString()))
+                .andExpect(jsonPath("hasNext").value(true))
+                .andExpect(jsonPath("next").value(LoanKeyset.first().after(older).encode()));
+
+        verify(loanService).findHistory(
+                argThat(filter -> "Iago Saito".equals(filter.getCustomer()) && Boolean.TRUE.equals(filter.getOverdue())
+                        && filter.getIsbn() == null && filter.getReturned() == null),
+                eq(LoanKeyset.first()), eq(2));
+    }
+
+    @Test
+    public void GivenInvalidCursor_WhenGetHistory_ReturnStatus400() throws Exception {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_URI)
+                .param("customer", "Iago Saito")
+                .param("cursor", "not-a-cursor");
+
+        mockMvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Invalid cursor"));
+
+        verify(loanService, never()).findHistory(any(), any(), anyInt());
+    }
+
     private Loan createNewLoanWithId() {
         return Loan.builder()
                 .loanId(1L)
@@ -179,6 +281,7 @@ public class LoanControllerTest {
         return LoanModel.builder()
                 .isbn("1234")
                 .customer("Fuzz Person")
+                .customerEmail("fuzz@person.com")
             .build();
     }
 }
@@ -0,0 +1,170 @@
+package com.iagosaito.libraryapi.api.resources.controller;
+
+import com.iagosaito.libraryapi.api.dto.BookModel;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.service.ReactiveBookService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "reactive"})
+public class ReactiveBookControllerTest {
+
+    private static String BOOK_URI = "/api/books";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveBookService bookService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    public void GivenBook_WhenPost_CreateAndFindIt() {
+        BookModel created = createBook("reactive-1", "Reactive Spring");
+
+        assertThat(created.getId()).isNotNull();
+
+        webTestClient.get().uri(BOOK_URI + "/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("title").isEqualTo("Reactive Spring")
+                .jsonPath("isbn").isEqualTo("reactive-1");
+    }
+
+    @Test
+    public void GivenDuplicatedIsbn_WhenPost_ReturnStatus400() {
+        createBook("reactive-2", "First");
+
+        webTestClient.post().uri(BOOK_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newBookModel("reactive-2", "Second"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("ISBN já cadastrado");
+    }
+
+    @Test
+    public void GivenInvalidBook_WhenPost_ReturnValidationErrors() {
+        webTestClient.post().uri(BOOK_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new BookModel())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors.length()").isEqualTo(3);
+    }
+
+    @Test
+    public void GivenFilter_WhenGet_ReturnMatchingPage() {
+        createBook("reactive-3", "Project Reactor in Action");
+        createBook("reactive-4", "Project Reactor Patterns");
+
+        webTestClient.get().uri(BOOK_URI + "?title=project reactor&page=0&size=1&sort=isbn,desc")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content.length()").isEqualTo(1)
+                .jsonPath("content[0].isbn").isEqualTo("reactive-4")
+                .jsonPath("totalElements").isEqualTo(2);
+    }
+
+    @Test
+    public void GivenBook_WhenUpdateAndDelete_ThenItIsGone() {
+        BookModel created = createBook("reactive-5", "Old Title");
+
+        webTestClient.put().uri(BOOK_URI + "/{id}", created.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newBookModel("ignored", "New Title"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("title").isEqualTo("New Title")
+                .jsonPath("isbn").isEqualTo("reactive-5");
+
+        webTestClient.delete().uri(BOOK_URI + "/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri(BOOK_URI + "/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void GivenStaleBook_WhenSave_ThenConflictAndKeepTheStoredVersion() {
+        BookModel created = createBook("reactive-6", "Old Title");
+        Book first = bookService.findById(created.getId()).block();
+        Book stale = bookService.findById(created.getId()).block();
+
+        first.setTitle("First Title");
+        assertThat(bookService.save(first).block().getVersion()).isEqualTo(1L);
+
+        stale.setTitle("Stale Title");
+        assertThatThrownBy(() -> bookService.save(stale).block())
+                .isInstanceOf(OptimisticLockingFailureException.class);
+
+        Book stored = bookService.findById(created.getId()).block();
+        assertThat(stored.getTitle()).isEqualTo("First Title");
+        assertThat(stored.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    public void GivenCachedIsbn_WhenSaveAndDelete_ThenEvictIt() {
+        BookModel created = createBook("reactive-7", "Cached Title");
+        Cache isbnCache = cacheManager.getCache(BookRepository.ISBN_CACHE);
+        isbnCache.put("reactive-7", Optional.of(created.getId()));
+        isbnCache.put("reactive-8", Optional.empty());
+
+        Book book = bookService.findById(created.getId()).block();
+        book.setIsbn("reactive-8");
+        bookService.save(book).block();
+
+        assertThat(isbnCache.get("reactive-7")).isNull();
+        assertThat(isbnCache.get("reactive-8")).isNull();
+
+        isbnCache.put("reactive-8", Optional.of(created.getId()));
+        bookService.delete(bookService.findById(created.getId()).block()).block();
+
+        assertThat(isbnCache.get("reactive-8")).isNull();
+    }
+
+    private BookModel createBook(String isbn, String title) {
+        return webTestClient.post().uri(BOOK_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newBookModel(isbn, title))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookModel.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private BookModel newBookModel(String isbn, String title) {
+        return BookModel.builder()
+                .title(title)
+                .author("Reactive Author")
+                .isbn(isbn)
+            .build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.iagosaito.libraryapi.api.resources.controller;
+
+import com.iagosaito.libraryapi.api.dto.BookModel;
+import com.iagosaito.libraryapi.api.dto.LoanModel;
+import com.iagosaito.libraryapi.api.dto.ReturnedLoanInput;
+import com.iagosaito.libraryapi.domain.service.BookAvailabilityService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "reactive"})
+public class ReactiveLoanControllerTest {
+
+    private static String LOAN_URI = "/api/loans";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private BookAvailabilityService availabilityService;
+
+    @Test
+    public void GivenLoan_WhenPostTwice_RejectSecondUntilReturned() {
+        createBook("reactive-loan-1");
+
+        Long loanId = webTestClient.post().uri(LOAN_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newLoanModel("reactive-loan-1"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Long.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(loanId).isNotNull();
+
+        webTestClient.post().uri(LOAN_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newLoanModel("reactive-loan-1"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("Book already loaned");
+
+        webTestClient.patch().uri(LOAN_URI + "/{id}", loanId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new ReturnedLoanInput(true))
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.post().uri(LOAN_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newLoanModel("reactive-loan-1"))
+                .exchange()
+                .expectStatus().isCreated();
+    }
+
+    @Test
+    public void GivenLoan_WhenPostAndReturn_ThenAvailabilityFollows() {
+        Long bookId = createBook("reactive-loan-2");
+
+        Long loanId = webTestClient.post().uri(LOAN_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newLoanModel("reactive-loan-2"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Long.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(availabilityService.findAvailability(Collections.singletonList(bookId)))
+                .containsExactly(entry(bookId, false));
+
+        webTestClient.patch().uri(LOAN_URI + "/{id}", loanId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new ReturnedLoanInput(true))
+                .exchange()
+                .expectStatus().isNoContent();
+
+        assertThat(availabilityService.findAvailability(Collections.singletonList(bookId)))
+                .containsExactly(entry(bookId, true));
+    }
+
+    @Test
+    public void GivenLoanWithNonExistentISBN_WhenPost_ReturnStatus400() {
+        webTestClient.post().uri(LOAN_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newLoanModel("reactive-missing"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("ISBN not found!!");
+    }
+
+    @Test
+    public void GivenNonExistLoan_WhenUpdate_ThenReturnStatus404() {
+        webTestClient.patch().uri(LOAN_URI + "/{id}", Long.MAX_VALUE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new ReturnedLoanInput(true))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private Long createBook(String isbn) {
+        return webTestClient.post().uri("/api/books")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BookModel.builder().title("Loaned").author("Reactive Author").isbn(isbn).build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookModel.class)
+                .returnResult()
+                .getResponseBody()
+                .getId();
+    }
+
+    private LoanModel newLoanModel(String isbn) {
+        return LoanModel.builder()
+                .isbn(isbn)
+                .customer("Fuzz Person")
+                .customerEmail("fuzz@person.com")
+            .build();
+    }
+}
@@ -2,6 +2,7 @@ package com.iagosaito.libraryapi.api.resources.repository;
 
 import com.iagosaito.libraryapi.domain.exception.BusinessException;
 import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookKeyset;
 import com.iagosaito.libraryapi.domain.repository.BookRepository;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
@@ -11,10 +12,16 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 @ExtendWith(SpringExtension.class)
@@ -57,6 +64,41 @@ public class BookRepositoryTest {
         Assertions.assertThat(exists).isFalse();
     }
 
+    @Test
+    public void returnIdWhenFindIdByIsbn() {
+        Book book = entityManager.persist(createNewBookWithoutId("123"));
+
+        Optional<Long> bookId = bookRepository.findIdByIsbn("123");
+
+        Assertions.assertThat(bookId).contains(book.getId());
+        Assertions.assertThat(bookRepository.findIdByIsbn("321")).isEmpty();
+    }
+
+    @Test
+    public void bumpVersionWhenBookIsUpdated() {
+        Book book = bookRepository.saveAndFlush(createNewBookWithoutId("123"));
+
+        Assertions.assertThat(bookRepository.findVersionById(book.getId())).contains(0L);
+
+        book.setTitle("Another Title");
+        bookRepository.saveAndFlush(book);
+
+        Assertions.assertThat(bookRepository.findVersionById(book.getId())).contains(1L);
+        Assertions.assertThat(bookRepository.findVersionById(999L)).isEmpty();
+    }
+
+    @Test
+    public void rejectDuplicatedIsbn() {
+        bookRepository.saveAndFlush(createNewBookWithoutId("123"));
+
+        Throwable exception = Assertions.catchThrowable(() ->
+                bookRepository.saveAndFlush(createNewBookWithoutId("123")));
+
+        Assertions.assertThat(exception)
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining(BookRepository.ISBN_UNIQUE_INDEX.toUpperCase());
+    }
+
     @Test
     public void returnBookWhenFindById() {
         Book book = createNewBookWithoutId("123");
@@ -98,6 +140,57 @@ public class BookRepositoryTest {
         Assertions.assertThat(foundBook.isPresent()).isFalse();
     }
 
+    @Test
+    public void walkAllMatchingBooksByKeyset() {
+        for (int i = 0; i < 7; i++) {
+            Book book = createNewBookWithoutId(String.valueOf(i));
+            book.setTitle(i % 2 == 0 ? "Same Title" : "Title " + (7 - i));
+            entityManager.persist(book);
+        }
+        entityManager.persist(Book.builder().isbn("99").title("Other").author("Someone").build());
+
+        Example<Book> example = Example.of(Book.builder().author("saito").build(), ExampleMatcher.matchingAny()
+                .withIgnoreCase()
+                .withIgnoreNullValues()
+                .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+
+        BookKeyset keyset = BookKeyset.first(Sort.by("title"));
+        List<Book> seen = new ArrayList<>();
+        List<Book> page;
+        do {
+            page = bookRepository.findAll(example, keyset, 3);
+            seen.addAll(page);
+            if (!page.isEmpty()) {
+                keyset = keyset.after(page.get(page.size() - 1));
+            }
+        } while (page.size() == 3);
+
+        Assertions.assertThat(seen).hasSize(7)
+                .extracting(Book::getTitle)
+                .containsExactly("Same Title", "Same Title", "Same Title", "Same Title",
+                        "Title 2", "Title 4", "Title 6");
+        Assertions.assertThat(seen.subList(0, 4))
+                .extracting(Book::getId)
+                .isSorted();
+    }
+
+    @Test
+    public void seekBackwardsById() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(entityManager.persist(createNewBookWithoutId(String.valueOf(i))).getId());
+        }
+
+        BookKeyset keyset = BookKeyset.first(Sort.by(Sort.Direction.DESC, "id"))
+                .after(Book.builder().id(ids.get(2)).build());
+
+        List<Book> books = bookRepository.findAll(Example.of(new Book()), keyset, 10);
+
+        Assertions.assertThat(books)
+                .extracting(Book::getId)
+                .containsExactly(ids.get(1), ids.get(0));
+    }
+
     public static Book createNewBookWithoutId(String isbn) {
         return Book.builder()
                 .isbn(isbn)
@@ -2,19 +2,28 @@ package com.iagosaito.libraryapi.api.resources.repository;
 
 import com.iagosaito.libraryapi.domain.model.Book;
 import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryEntry;
+import com.iagosaito.libraryapi.domain.repository.LoanHistoryFilter;
+import com.iagosaito.libraryapi.domain.repository.LoanKeyset;
 import com.iagosaito.libraryapi.domain.repository.LoanRepository;
+import com.iagosaito.libraryapi.domain.repository.LoanState;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 
 import static com.iagosaito.libraryapi.api.resources.repository.BookRepositoryTest.createNewBookWithoutId;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -35,11 +44,118 @@ public class LoanRepositoryTest {
         Loan loan = createNewLoanWithoutId(book);
         entityManager.persist(loan);
 
-        boolean returned = loanRepository.existsByBookAndNotReturned(book);
+        boolean returned = loanRepository.existsByBookAndReturnedFalse(book);
 
         assertThat(returned).isTrue();
     }
 
+    @Test
+    public void notExistsByBookWhenEveryLoanWasReturnedTest() {
+        Book book = createNewBookWithoutId("1234");
+        book = entityManager.persist(book);
+
+        Loan loan = createNewLoanWithoutId(book);
+        loan.setReturned(true);
+        entityManager.persist(loan);
+
+        boolean loaned = loanRepository.existsByBookAndReturnedFalse(book);
+
+        assertThat(loaned).isFalse();
+    }
+
+    @Test
+    public void rejectSecondOpenLoanOfTheSameBookTest() {
+        Book book = entityManager.persist(createNewBookWithoutId("1234"));
+
+        Loan returnedLoan = createNewLoanWithoutId(book);
+        returnedLoan.setReturned(true);
+        loanRepository.saveAndFlush(returnedLoan);
+        loanRepository.saveAndFlush(createNewLoanWithoutId(book));
+
+        Throwable exception = catchThrowable(() -> loanRepository.saveAndFlush(createNewLoanWithoutId(book)));
+
+        assertThat(exception)
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining(LoanRepository.OPEN_LOAN_UNIQUE_INDEX.toUpperCase());
+    }
+
+    @Test
+    public void markReturnedOnlyTouchesOpenLoansTest() {
+        Book firstBook = entityManager.persist(createNewBookWithoutId("1234"));
+        Book secondBook = entityManager.persist(createNewBookWithoutId("4321"));
+
+        Loan openLoan = entityManager.persist(createNewLoanWithoutId(firstBook));
+        Loan returnedLoan = createNewLoanWithoutId(secondBook);
+        returnedLoan.setReturned(true);
+        returnedLoan = entityManager.persist(returnedLoan);
+
+        int updated = loanRepository.markReturned(Arrays.asList(openLoan.getLoanId(), returnedLoan.getLoanId(), 999L));
+
+        assertThat(updated).isEqualTo(1);
+        assertThat(loanRepository.existsByBookAndReturnedFalse(firstBook)).isFalse();
+        assertThat(loanRepository.findOpenStatesByIsbn(Arrays.asList("1234", "4321"))).isEmpty();
+        assertThat(loanRepository.findStates(Arrays.asList(openLoan.getLoanId(), 999L)))
+                .extracting(LoanState::getLoanId, LoanState::getIsbn, LoanState::getReturned)
+                .containsExactly(tuple(openLoan.getLoanId(), "1234", true));
+    }
+
+    @Test
+    public void pageCustomerHistoryNewestFirstTest() {
+        LocalDate today = LocalDate.now();
+        Loan oldest = persistLoan("1111", "Iago Saito", today.minusDays(30), true);
+        Loan sameDayFirst = persistLoan("2222", "Iago Saito", today.minusDays(10), true);
+        Loan sameDaySecond = persistLoan("3333", "Iago Saito", today.minusDays(10), false);
+        Loan newest = persistLoan("4444", "Iago Saito", today, false);
+        persistLoan("5555", "Fulano", today, false);
+
+        LoanHistoryFilter filter = LoanHistoryFilter.builder().customer("Iago Saito").build();
+
+        List<LoanHistoryEntry> firstPage = loanRepository.findHistory(filter, today, LoanKeyset.first(), 3);
+        LoanKeyset next = LoanKeyset.decode(LoanKeyset.first().after(firstPage.get(2)).encode());
+        List<LoanHistoryEntry> secondPage = loanRepository.findHistory(filter, today, next, 3);
+
+        assertThat(firstPage)
+                .extracting(LoanHistoryEntry::getLoanId)
+                .containsExactly(newest.getLoanId(), sameDaySecond.getLoanId(), sameDayFirst.getLoanId());
+        assertThat(secondPage)
+                .extracting(LoanHistoryEntry::getLoanId, LoanHistoryEntry::getIsbn, LoanHistoryEntry::getTitle)
+                .containsExactly(tuple(oldest.getLoanId(), "1111", "Teste"));
+    }
+
+    @Test
+    public void filterHistoryByOverdueAndIsbnTest() {
+        LocalDate today = LocalDate.now();
+        LocalDate cutoff = today.minusDays(7);
+        Loan overdue = persistLoan("1111", "Iago Saito", today.minusDays(8), false);
+        Loan returnedLate = persistLoan("2222", "Iago Saito", today.minusDays(8), true);
+        Loan recent = persistLoan("3333", "Iago Saito", today, false);
+
+        List<LoanHistoryEntry> overdueLoans = loanRepository.findHistory(
+                LoanHistoryFilter.builder().overdue(true).build(), cutoff, LoanKeyset.first(), 10);
+        List<LoanHistoryEntry> onTimeLoans = loanRepository.findHistory(
+                LoanHistoryFilter.builder().overdue(false).build(), cutoff, LoanKeyset.first(), 10);
+        List<LoanHistoryEntry> byIsbn = loanRepository.findHistory(
+                LoanHistoryFilter.builder().isbn("2222").returned(true).build(), cutoff, LoanKeyset.first(), 10);
+
+        assertThat(overdueLoans).extracting(LoanHistoryEntry::getLoanId).containsExactly(overdue.getLoanId());
+        assertThat(onTimeLoans).extracting(LoanHistoryEntry::getLoanId)
+                .containsExactly(recent.getLoanId(), returnedLate.getLoanId());
+        assertThat(byIsbn).extracting(LoanHistoryEntry::getLoanId).containsExactly(returnedLate.getLoanId());
+    }
+
+    private Loan persistLoan(String isbn, String customer, LocalDate localDate, boolean returned) {
+        Loan loan = createNewLoanWithoutId(entityManager.persist(createNewBookWithoutId(isbn)));
+        loan.setCustomer(customer);
+        loan.setReturned(returned);
+        loan = entityManager.persist(loan);
+
+        // the loan date is stamped on persist, so back-date it afterwards
+        loan.setLocalDate(localDate);
+        entityManager.flush();
+
+        return loan;
+    }
+
     public static Loan createNewLoanWithoutId(Book book) {
         return Loan.builder()
                 .book(book)
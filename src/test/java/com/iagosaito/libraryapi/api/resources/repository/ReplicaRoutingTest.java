@@ -0,0 +1,167 @@
+package com.iagosaito.libraryapi.api.resources.repository;
+
+import com.iagosaito.libraryapi.core.ReadYourWrites;
+import com.iagosaito.libraryapi.core.ReplicaSet;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.repository.LoanRepository;
+import com.iagosaito.libraryapi.domain.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.servlet.http.Cookie;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iagosaito.libraryapi.api.resources.repository.BookRepositoryTest.createNewBookWithoutId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two in-memory H2 databases stand in for replicas, migrated like the primary but never fed its
+ * writes, so which database answered a read shows in what it finds. A third replica cannot be
+ * reached at all; migrating it fails quietly and the health checks keep it out of rotation.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+        "library.datasource.replicas.urls=" + ReplicaRoutingTest.REPLICA_1_URL + "," + ReplicaRoutingTest.REPLICA_2_URL
+                + "," + ReplicaRoutingTest.UNREACHABLE_URL,
+        "library.datasource.replicas.connection-timeout-ms=250",
+        "library.datasource.replicas.migrate=true",
+        "library.datasource.replicas.read-your-writes-seconds=5",
+        "library.jpa.second-level-cache.enabled=false"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+
+    static final String REPLICA_1_URL = "jdbc:h2:mem:routing-replica-1;DB_CLOSE_DELAY=-1";
+
+    static final String REPLICA_2_URL = "jdbc:h2:mem:routing-replica-2;DB_CLOSE_DELAY=-1";
+
+    static final String UNREACHABLE_URL = "jdbc:h2:tcp://localhost:1/unreachable";
+
+    private static final long REPLICATED_BOOK_ID = 100_000L;
+
+    private static final long REPLICATED_LOAN_ID = 100_000L;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private ReplicaSet replicaSet;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * The test thread carries a mock request of its own, so its writes would pin it to the primary
+     * for every later test; only the requests made through {@link MockMvc} should.
+     */
+    @BeforeEach
+    public void setup() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        loanRepository.deleteAllInBatch();
+        bookRepository.deleteAllInBatch();
+        for (String url : new String[]{REPLICA_1_URL, REPLICA_2_URL}) {
+            database(url).update("DELETE FROM loan");
+            database(url).update("DELETE FROM book");
+        }
+    }
+
+    @Test
+    public void mustSpreadReadsOverHealthyReplicas() {
+        database(REPLICA_1_URL).update("INSERT INTO book (id, title, author, isbn) VALUES (?, 'Replica 1', 'Author', '1')", REPLICATED_BOOK_ID);
+        database(REPLICA_2_URL).update("INSERT INTO book (id, title, author, isbn) VALUES (?, 'Replica 2', 'Author', '1')", REPLICATED_BOOK_ID);
+
+        Set<String> titles = IntStream.range(0, 4)
+                .mapToObj(i -> bookService.findById(REPLICATED_BOOK_ID).map(Book::getTitle).orElse("primary"))
+                .collect(Collectors.toSet());
+
+        assertThat(titles).containsExactlyInAnyOrder("Replica 1", "Replica 2");
+        assertThat(replicaSet.health()).containsValues(true, true, false);
+    }
+
+    @Test
+    public void mustWriteToPrimaryOnly() {
+        bookService.save(createNewBookWithoutId("1234"));
+
+        assertThat(database(PRIMARY_URL).queryForObject("SELECT COUNT(*) FROM book", Long.class)).isEqualTo(1);
+        assertThat(database(REPLICA_1_URL).queryForObject("SELECT COUNT(*) FROM book", Long.class)).isZero();
+        assertThat(database(REPLICA_2_URL).queryForObject("SELECT COUNT(*) FROM book", Long.class)).isZero();
+    }
+
+    @Test
+    public void mustReadOwnWritesFromPrimary() throws Exception {
+        MvcResult created = mockMvc.perform(MockMvcRequestBuilders.post("/api/books")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Title\",\"author\":\"Author\",\"isbn\":\"1234\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().maxAge(ReadYourWrites.COOKIE, 5))
+                .andReturn();
+
+        Long bookId = bookRepository.findIdByIsbn("1234").orElseThrow(IllegalStateException::new);
+        Cookie readPrimary = created.getResponse().getCookie(ReadYourWrites.COOKIE);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/books/" + bookId).cookie(readPrimary))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/books/" + bookId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void mustWriteToPrimaryAfterReadingFromReplicaInTheSameRequest() throws Exception {
+        for (String url : new String[]{PRIMARY_URL, REPLICA_1_URL, REPLICA_2_URL}) {
+            database(url).update("INSERT INTO book (id, title, author, isbn) VALUES (?, 'Title', 'Author', '1')", REPLICATED_BOOK_ID);
+            database(url).update("INSERT INTO loan (loan_id, customer, book_id, local_date, returned) "
+                    + "VALUES (?, 'Customer', ?, CURRENT_DATE, false)", REPLICATED_LOAN_ID, REPLICATED_BOOK_ID);
+        }
+
+        // the loan is read from a replica, then written in another transaction of the same request
+        mockMvc.perform(MockMvcRequestBuilders.patch("/api/loans/" + REPLICATED_LOAN_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"returned\":true}"))
+                .andExpect(status().isNoContent());
+
+        assertThat(returned(PRIMARY_URL)).isTrue();
+        assertThat(returned(REPLICA_1_URL)).isFalse();
+        assertThat(returned(REPLICA_2_URL)).isFalse();
+    }
+
+    private static Boolean returned(String url) {
+        return database(url).queryForObject("SELECT returned FROM loan WHERE loan_id = ?", Boolean.class, REPLICATED_LOAN_ID);
+    }
+
+    private static JdbcTemplate database(String url) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", "sa"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.iagosaito.libraryapi.api.resources.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class SchemaIndexTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    public void isbnLookupUsesUniqueIndex() {
+        String plan = explain("SELECT b.id FROM book b WHERE b.isbn = '1234'");
+
+        assertThat(plan).contains("UX_BOOK_ISBN");
+    }
+
+    @Test
+    public void openLoanProbeUsesBookReturnedIndex() {
+        String plan = explain("SELECT l.loan_id FROM loan l WHERE l.book_id = 1 AND l.returned = FALSE LIMIT 1");
+
+        assertThat(plan).contains("IX_LOAN_BOOK_RETURNED");
+    }
+
+    @Test
+    public void titleKeysetSeekUsesTitleIdIndex() {
+        String plan = explain("SELECT b.id FROM book b WHERE b.title >= 'T' AND (b.title > 'T' OR b.id > 10) "
+                + "ORDER BY b.title, b.id LIMIT 21");
+
+        assertThat(plan).contains("IX_BOOK_TITLE_ID: TITLE >= 'T'");
+    }
+
+    @Test
+    public void overdueScanSeeksOpenLoansByCustomer() {
+        String plan = explain("SELECT l.loan_id, b.isbn FROM loan l JOIN book b ON b.id = l.book_id WHERE l.returned = FALSE "
+                + "AND l.local_date <= DATE '2020-01-01' AND l.customer_email >= 'a@b.com' "
+                + "AND (l.customer_email > 'a@b.com' OR l.loan_id > 10) "
+                + "ORDER BY l.returned, l.customer_email, l.loan_id LIMIT 1000");
+
+        assertThat(plan)
+                .contains("IX_LOAN_OPEN_CUSTOMER_EMAIL: CUSTOMER_EMAIL >= 'A@B.COM'")
+                .contains("INDEX SORTED");
+    }
+
+    @Test
+    public void overdueLoansWithoutEmailAreCountedFromTheOpenLoanIndex() {
+        String plan = explain("SELECT COUNT(*) FROM loan l WHERE l.returned = FALSE AND l.customer_email IS NULL "
+                + "AND l.local_date <= DATE '2020-01-01'");
+
+        assertThat(plan).contains("IX_LOAN_OPEN_CUSTOMER_EMAIL").contains("CUSTOMER_EMAIL IS NULL");
+    }
+
+    @Test
+    public void historyWithoutCustomerSeeksTheDateIndex() {
+        String plan = explain("SELECT l.loan_id, b.isbn FROM loan l JOIN book b ON b.id = l.book_id "
+                + "WHERE l.local_date <= DATE '2020-01-01' "
+                + "AND (l.local_date < DATE '2020-01-01' OR l.loan_id < 10) "
+                + "ORDER BY l.local_date DESC, l.loan_id DESC LIMIT 21");
+
+        assertThat(plan)
+                .contains("IX_LOAN_DATE: LOCAL_DATE <= DATE '2020-01-01'")
+                .contains("INDEX SORTED");
+    }
+
+    private String explain(String sql) {
+        return entityManager.getEntityManager()
+                .createNativeQuery("EXPLAIN " + sql)
+                .getSingleResult()
+                .toString()
+                .toUpperCase();
+    }
+}
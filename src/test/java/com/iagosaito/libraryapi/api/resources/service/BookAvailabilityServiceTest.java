@@ -0,0 +1,129 @@
+package com.iagosaito.libraryapi.api.resources.service;
+
+import com.iagosaito.libraryapi.domain.event.BookDeletedEvent;
+import com.iagosaito.libraryapi.domain.event.BookLoanedEvent;
+import com.iagosaito.libraryapi.domain.event.BookSavedEvent;
+import com.iagosaito.libraryapi.domain.event.BooksReturnedEvent;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.service.BookAvailabilityServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.iagosaito.libraryapi.api.resources.repository.BookRepositoryTest.createNewBookWithoutId;
+import static com.iagosaito.libraryapi.api.resources.repository.LoanRepositoryTest.createNewLoanWithoutId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class BookAvailabilityServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BookAvailabilityServiceImpl availabilityService;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        availabilityService = new BookAvailabilityServiceImpl(bookRepository, transactionManager, meterRegistry);
+    }
+
+    @Test
+    public void mustAnswerFromTheIndexOnceLoaded() {
+        Book free = entityManager.persist(createNewBookWithoutId("1"));
+        Book loaned = entityManager.persist(createNewBookWithoutId("2"));
+        Book returned = entityManager.persist(createNewBookWithoutId("3"));
+        entityManager.persist(createNewLoanWithoutId(loaned));
+        Loan returnedLoan = createNewLoanWithoutId(returned);
+        returnedLoan.setReturned(true);
+        entityManager.persist(returnedLoan);
+        entityManager.flush();
+
+        availabilityService.reconcile();
+
+        assertThat(availabilityService.findAvailability(Arrays.asList(loaned.getId(), free.getId(), returned.getId())))
+                .containsExactly(entry(loaned.getId(), false), entry(free.getId(), true), entry(returned.getId(), true));
+        assertThat(lookups("index")).isEqualTo(3);
+        assertThat(lookups("database")).isZero();
+    }
+
+    @Test
+    public void mustFollowLoanAndBookEvents() {
+        availabilityService.reconcile();
+
+        availabilityService.onBookSaved(new BookSavedEvent(Book.builder().id(7L).isbn("7").build()));
+        assertThat(availabilityService.findAvailability(Collections.singletonList(7L))).containsExactly(entry(7L, true));
+
+        availabilityService.onBookLoaned(new BookLoanedEvent(7L));
+        assertThat(availabilityService.findAvailability(Collections.singletonList(7L))).containsExactly(entry(7L, false));
+
+        availabilityService.onBooksReturned(new BooksReturnedEvent(7L));
+        assertThat(availabilityService.findAvailability(Collections.singletonList(7L))).containsExactly(entry(7L, true));
+
+        availabilityService.onBookDeleted(new BookDeletedEvent(7L));
+        assertThat(availabilityService.findAvailability(Collections.singletonList(7L))).isEmpty();
+    }
+
+    @Test
+    public void mustLookUpBooksTheIndexDoesNotKnowAndKeepThem() {
+        availabilityService.reconcile();
+
+        Book loaned = entityManager.persist(createNewBookWithoutId("1"));
+        entityManager.persist(createNewLoanWithoutId(loaned));
+        entityManager.flush();
+
+        assertThat(availabilityService.findAvailability(Arrays.asList(loaned.getId(), 999L)))
+                .containsExactly(entry(loaned.getId(), false));
+        assertThat(lookups("database")).isEqualTo(2);
+
+        assertThat(availabilityService.findAvailability(Collections.singletonList(loaned.getId())))
+                .containsExactly(entry(loaned.getId(), false));
+        assertThat(lookups("index")).isEqualTo(1);
+    }
+
+    @Test
+    public void mustCountTheBitsAReconcileCorrects() {
+        Book book = entityManager.persist(createNewBookWithoutId("1"));
+        entityManager.flush();
+        availabilityService.reconcile();
+
+        // a loan written by another instance, so no event reaches this one
+        entityManager.persist(createNewLoanWithoutId(book));
+        entityManager.flush();
+        assertThat(availabilityService.findAvailability(Collections.singletonList(book.getId())))
+                .containsExactly(entry(book.getId(), true));
+
+        assertThat(availabilityService.reconcile()).isEqualTo(1);
+
+        assertThat(availabilityService.findAvailability(Collections.singletonList(book.getId())))
+                .containsExactly(entry(book.getId(), false));
+        assertThat(meterRegistry.get("library.books.availability.corrections").counter().count()).isEqualTo(1);
+    }
+
+    private double lookups(String source) {
+        return meterRegistry.get("library.books.availability.lookups").tag("source", source).counter().count();
+    }
+}
@@ -0,0 +1,83 @@
+package com.iagosaito.libraryapi.api.resources.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.service.BookExportService;
+import com.iagosaito.libraryapi.domain.service.BookExportServiceImpl;
+import com.iagosaito.libraryapi.domain.service.BookFileFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.iagosaito.libraryapi.api.resources.repository.BookRepositoryTest.createNewBookWithoutId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class BookExportServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private BookExportService bookExportService;
+
+    private Book first;
+
+    private Book second;
+
+    @BeforeEach
+    public void setup() {
+        bookExportService = new BookExportServiceImpl(bookRepository, entityManager.getEntityManager(),
+                new ObjectMapper(), 1);
+
+        first = entityManager.persist(createNewBookWithoutId("1"));
+        second = entityManager.persist(createNewBookWithoutId("2"));
+        entityManager.flush();
+    }
+
+    @Test
+    public void mustExportBooksAsNdjson() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long exported = bookExportService.exportBooks(output, BookFileFormat.NDJSON);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+
+        assertThat(exported).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        assertThat(new ObjectMapper().readValue(lines[1], Book.class)).isEqualTo(second);
+    }
+
+    @Test
+    public void mustExportBooksAsCsvWithHeader() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        bookExportService.exportBooks(output, BookFileFormat.CSV);
+
+        assertThat(output.toString(StandardCharsets.UTF_8).split("\n"))
+                .containsExactly("id,title,author,isbn",
+                        first.getId() + ",Teste,\"Iago Saito\",1",
+                        second.getId() + ",Teste,\"Iago Saito\",2");
+    }
+
+    @Test
+    public void mustDetachExportedBooks() throws Exception {
+        bookExportService.exportBooks(new ByteArrayOutputStream(), BookFileFormat.NDJSON);
+
+        assertThat(entityManager.getEntityManager().contains(first)).isFalse();
+        assertThat(entityManager.getEntityManager().contains(second)).isFalse();
+    }
+}
@@ -0,0 +1,176 @@
+package com.iagosaito.libraryapi.api.resources.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iagosaito.libraryapi.domain.event.BookSavedEvent;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.service.BookFileFormat;
+import com.iagosaito.libraryapi.domain.service.BookImportResult;
+import com.iagosaito.libraryapi.domain.service.BookImportService;
+import com.iagosaito.libraryapi.domain.service.BookImportServiceImpl;
+import com.iagosaito.libraryapi.domain.service.BookIsbnFilter;
+import com.iagosaito.libraryapi.domain.service.BookIsbnFilterImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.iagosaito.libraryapi.api.resources.repository.BookRepositoryTest.createNewBookWithoutId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BookImportServiceTest {
+
+    // the shared one, so a chunk that fails is rolled back and left behind like in production
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Object> events = new ArrayList<>();
+
+    private BookIsbnFilter isbnFilter;
+
+    private BookImportService bookImportService;
+
+    @BeforeEach
+    public void setup() {
+        isbnFilter = new BookIsbnFilterImpl(bookRepository, transactionManager, new SimpleMeterRegistry(), true,
+                0.01, DataSize.ofMegabytes(1), Duration.ofHours(6), "");
+        isbnFilter.rebuild();
+
+        bookImportService = new BookImportServiceImpl(bookRepository, entityManager,
+                transactionManager, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), events::add, isbnFilter, 2);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        bookRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void mustImportNdjsonBooks() throws Exception {
+        InputStream input = payload(
+                "{\"title\":\"Dom Casmurro\",\"author\":\"Machado de Assis\",\"isbn\":\"1\"}",
+                "",
+                "{\"title\":\"Iracema\",\"author\":\"José de Alencar\",\"isbn\":\"2\"}",
+                "{\"title\":\"Macunaíma\",\"author\":\"Mário de Andrade\",\"isbn\":\"3\"}");
+
+        BookImportResult result = bookImportService.importBooks(input, BookFileFormat.NDJSON);
+
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getRejected()).isZero();
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(bookRepository.findByIsbn("2")).hasValueSatisfying(book ->
+                assertThat(book.getTitle()).isEqualTo("Iracema"));
+        assertThat(events)
+                .flatExtracting(event -> ((BookSavedEvent) event).getBooks())
+                .extracting(Book::getIsbn)
+                .containsExactly("1", "2", "3");
+    }
+
+    @Test
+    public void mustImportCsvBooksWithHeaderInAnyOrder() throws Exception {
+        InputStream input = payload(
+                "isbn,author,title",
+                "1,Machado de Assis,Dom Casmurro",
+                "2,\"Alencar, José de\",Iracema");
+
+        BookImportResult result = bookImportService.importBooks(input, BookFileFormat.CSV);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(bookRepository.findByIsbn("2")).hasValueSatisfying(book ->
+                assertThat(book.getAuthor()).isEqualTo("Alencar, José de"));
+    }
+
+    @Test
+    public void mustReportRejectedRowsWithTheirLines() throws Exception {
+        bookRepository.save(createNewBookWithoutId("1"));
+        isbnFilter.rebuild();
+
+        InputStream input = payload(
+                "{\"title\":\"Dom Casmurro\",\"author\":\"Machado de Assis\",\"isbn\":\"1\"}",
+                "{\"title\":\"Iracema\",\"author\":\"José de Alencar\",\"isbn\":\"2\"}",
+                "{\"title\":\"Iracema\",\"author\":\"José de Alencar\",\"isbn\":\"2\"}",
+                "{\"title\":\"\",\"author\":\"Mário de Andrade\",\"isbn\":\"3\"}",
+                "{not json");
+
+        BookImportResult result = bookImportService.importBooks(input, BookFileFormat.NDJSON);
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(4);
+        assertThat(result.getErrors())
+                .extracting(BookImportResult.RowError::getLine)
+                .containsExactlyInAnyOrder(1L, 3L, 4L, 5L);
+        assertThat(result.getErrors())
+                .filteredOn(error -> error.getLine() == 4)
+                .extracting(BookImportResult.RowError::getMessage)
+                .containsExactly("title must not be blank");
+        assertThat(result.getRowsPerSecond()).isPositive();
+    }
+
+    @Test
+    public void mustTellDuplicatedIsbnsFromOtherRowsTheDatabaseRejects() throws Exception {
+        bookRepository.save(createNewBookWithoutId("1"));
+        String tooLongTitle = String.join("", Collections.nCopies(300, "a"));
+
+        // an empty filter lets the duplicate reach the unique index
+        InputStream input = payload(
+                "{\"title\":\"Dom Casmurro\",\"author\":\"Machado de Assis\",\"isbn\":\"1\"}",
+                "{\"title\":\"" + tooLongTitle + "\",\"author\":\"José de Alencar\",\"isbn\":\"2\"}",
+                "{\"title\":\"Macunaíma\",\"author\":\"Mário de Andrade\",\"isbn\":\"3\"}");
+
+        BookImportResult result = bookImportService.importBooks(input, BookFileFormat.NDJSON);
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getErrors())
+                .extracting(BookImportResult.RowError::getLine, BookImportResult.RowError::getMessage)
+                .containsExactlyInAnyOrder(tuple(1L, "ISBN já cadastrado"), tuple(2L, "Rejected by the database"));
+    }
+
+    @Test
+    public void mustIgnoreTheIdAndVersionARowCarries() throws Exception {
+        InputStream input = payload(
+                "{\"id\":42,\"version\":7,\"title\":\"Dom Casmurro\",\"author\":\"Machado de Assis\",\"isbn\":\"1\"}");
+
+        BookImportResult result = bookImportService.importBooks(input, BookFileFormat.NDJSON);
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(bookRepository.findByIsbn("1")).hasValueSatisfying(book -> {
+            assertThat(book.getId()).isNotEqualTo(42L);
+            assertThat(book.getVersion()).isZero();
+        });
+    }
+
+    private InputStream payload(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
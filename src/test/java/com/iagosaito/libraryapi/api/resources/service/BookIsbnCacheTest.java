@@ -0,0 +1,89 @@
+package com.iagosaito.libraryapi.api.resources.service;
+
+import com.iagosaito.libraryapi.core.CacheConfig;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.service.BookService;
+import com.iagosaito.libraryapi.domain.service.BookServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static com.iagosaito.libraryapi.api.resources.repository.BookRepositoryTest.createNewBookWithoutId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({CacheConfig.class, BookServiceImpl.class, SimpleMeterRegistry.class})
+@AutoConfigureCache(cacheProvider = CacheType.CAFFEINE)
+@TestPropertySource(properties = "spring.cache.cache-names=" + BookRepository.ISBN_CACHE)
+public class BookIsbnCacheTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Cache isbnCache;
+
+    @BeforeEach
+    public void setup() {
+        isbnCache = cacheManager.getCache(BookRepository.ISBN_CACHE);
+        isbnCache.clear();
+    }
+
+    @Test
+    public void mustCacheBookIdOnIsbnLookup() {
+        Book book = entityManager.persist(createNewBookWithoutId("1234"));
+
+        bookService.getByIsbn("1234");
+
+        assertThat(isbnCache.get("1234", Long.class)).isEqualTo(book.getId());
+    }
+
+    @Test
+    public void mustNotCacheUnknownIsbn() {
+        assertThat(bookService.getByIsbn("1234")).isEmpty();
+
+        assertThat(isbnCache.get("1234")).isNull();
+    }
+
+    @Test
+    public void mustEvictIsbnWhenBookIsSaved() {
+        Book book = entityManager.persist(createNewBookWithoutId("1234"));
+        bookService.getByIsbn("1234");
+
+        book.setTitle("Another Title");
+        bookService.save(book);
+
+        assertThat(isbnCache.get("1234")).isNull();
+    }
+
+    @Test
+    public void mustEvictIsbnWhenBookIsDeleted() {
+        Book book = entityManager.persist(createNewBookWithoutId("1234"));
+        bookService.getByIsbn("1234");
+
+        bookService.delete(book);
+
+        assertThat(isbnCache.get("1234")).isNull();
+        assertThat(bookService.getByIsbn("1234")).isEmpty();
+    }
+}
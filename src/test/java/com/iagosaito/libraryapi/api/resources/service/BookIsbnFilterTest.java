@@ -0,0 +1,155 @@
+package com.iagosaito.libraryapi.api.resources.service;
+
+import com.iagosaito.libraryapi.domain.event.BookDeletedEvent;
+import com.iagosaito.libraryapi.domain.event.BookSavedEvent;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.service.BookIsbnFilterImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iagosaito.libraryapi.api.resources.repository.BookRepositoryTest.createNewBookWithoutId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class BookIsbnFilterTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void mustRuleOutIsbnsThatAreNotInTheCatalog() {
+        persist("1", "2", "3");
+        BookIsbnFilterImpl isbnFilter = createFilter(DataSize.ofMegabytes(1), "");
+
+        assertThat(isbnFilter.rebuild()).isEqualTo(3);
+
+        assertThat(isbnFilter.mightExist(Arrays.asList("1", "2", "3"))).containsOnly("1", "2", "3");
+        List<String> unknown = IntStream.range(0, 1000)
+                .mapToObj(i -> "unknown-" + i)
+                .collect(Collectors.toList());
+        assertThat(isbnFilter.mightExist(unknown)).hasSizeLessThan(30);
+        assertThat(meterRegistry.get("library.books.isbn-filter.checks").tag("result", "absent").counter().count())
+                .isGreaterThan(970);
+    }
+
+    @Test
+    public void mustAnswerMaybeUntilBuilt() {
+        BookIsbnFilterImpl isbnFilter = createFilter(DataSize.ofMegabytes(1), "");
+
+        assertThat(isbnFilter.mightExist("1")).isTrue();
+        assertThat(isbnFilter.mightExist(Arrays.asList("1", "2"))).containsOnly("1", "2");
+    }
+
+    @Test
+    public void mustTakeInSavedBooks() {
+        BookIsbnFilterImpl isbnFilter = createFilter(DataSize.ofMegabytes(1), "");
+        isbnFilter.rebuild();
+        assertThat(isbnFilter.mightExist("1")).isFalse();
+
+        isbnFilter.onBookSaved(new BookSavedEvent(Book.builder().id(7L).isbn("1").build()));
+
+        assertThat(isbnFilter.mightExist("1")).isTrue();
+    }
+
+    @Test
+    public void mustShedDeletedIsbnsOnRebuild() {
+        List<Book> books = persist("1", "2");
+        BookIsbnFilterImpl isbnFilter = createFilter(DataSize.ofMegabytes(1), "");
+        isbnFilter.rebuild();
+
+        entityManager.remove(books.get(0));
+        isbnFilter.onBookDeleted(new BookDeletedEvent(books.get(0).getId()));
+        assertThat(isbnFilter.mightExist("1")).isTrue();
+        assertThat(meterRegistry.get("library.books.isbn-filter.deleted").gauge().value()).isEqualTo(1);
+
+        isbnFilter.rebuild();
+
+        assertThat(isbnFilter.mightExist("1")).isFalse();
+        assertThat(isbnFilter.mightExist("2")).isTrue();
+        assertThat(meterRegistry.get("library.books.isbn-filter.deleted").gauge().value()).isZero();
+    }
+
+    @Test
+    public void mustRestoreFromTheSnapshotAndAddTheBooksInsertedSince(@TempDir Path directory) {
+        String snapshot = directory.resolve("isbn-filter.bin").toString();
+        List<Book> books = persist("1");
+        createFilter(DataSize.ofMegabytes(1), snapshot).rebuild();
+
+        entityManager.remove(books.get(0));
+        persist("2");
+
+        BookIsbnFilterImpl restarted = createFilter(DataSize.ofMegabytes(1), snapshot);
+        restarted.onApplicationReady();
+
+        // a rescan would have dropped the deleted isbn
+        assertThat(restarted.mightExist("1")).isTrue();
+        assertThat(restarted.mightExist("2")).isTrue();
+        assertThat(restarted.mightExist("3")).isFalse();
+    }
+
+    @Test
+    public void mustRebuildWhenTheSnapshotIsUnreadable(@TempDir Path directory) throws Exception {
+        Path snapshot = directory.resolve("isbn-filter.bin");
+        Files.write(snapshot, new byte[]{1, 2, 3});
+        persist("1");
+
+        BookIsbnFilterImpl isbnFilter = createFilter(DataSize.ofMegabytes(1), snapshot.toString());
+        isbnFilter.onApplicationReady();
+
+        assertThat(isbnFilter.mightExist("1")).isTrue();
+        assertThat(isbnFilter.mightExist("2")).isFalse();
+    }
+
+    @Test
+    public void mustStayWithinTheMemoryBudget() {
+        BookIsbnFilterImpl isbnFilter = createFilter(DataSize.ofKilobytes(1), "");
+        isbnFilter.rebuild();
+
+        assertThat(meterRegistry.get("library.books.isbn-filter.bytes").gauge().value()).isEqualTo(1024);
+    }
+
+    private BookIsbnFilterImpl createFilter(DataSize maxMemory, String snapshot) {
+        return new BookIsbnFilterImpl(bookRepository, transactionManager, meterRegistry, true, 0.01, maxMemory,
+                Duration.ofHours(6), snapshot);
+    }
+
+    private List<Book> persist(String... isbns) {
+        return Arrays.stream(isbns)
+                .map(isbn -> entityManager.persist(createNewBookWithoutId(isbn)))
+                .collect(Collectors.toList());
+    }
+}
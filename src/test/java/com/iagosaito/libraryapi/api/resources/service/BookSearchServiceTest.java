@@ -0,0 +1,95 @@
+package com.iagosaito.libraryapi.api.resources.service;
+
+import com.iagosaito.libraryapi.domain.event.BookDeletedEvent;
+import com.iagosaito.libraryapi.domain.event.BookSavedEvent;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.service.BookSearchServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class BookSearchServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BookSearchServiceImpl bookSearchService;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        bookSearchService = new BookSearchServiceImpl(bookRepository, entityManager.getEntityManager(),
+                transactionManager);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        bookSearchService.close();
+    }
+
+    @Test
+    public void mustRankTitleMatchesAboveAuthorMatches() {
+        persist("1", "Dom Casmurro", "Machado de Assis");
+        persist("2", "Memórias Póstumas de Brás Cubas", "Machado de Assis");
+        Book biography = persist("3", "Machado", "Lúcia Miguel Pereira");
+        persist("4", "Iracema", "José de Alencar");
+
+        assertThat(bookSearchService.reindex()).isEqualTo(4);
+
+        assertThat(bookSearchService.search("MACHADO", 10))
+                .hasSize(3)
+                .first()
+                .extracting(Book::getId)
+                .isEqualTo(biography.getId());
+    }
+
+    @Test
+    public void mustMatchEveryTermAcrossTitleAndAuthor() {
+        persist("1", "Dom Casmurro", "Machado de Assis");
+        persist("2", "Memórias Póstumas de Brás Cubas", "Machado de Assis");
+        bookSearchService.reindex();
+
+        assertThat(bookSearchService.search("machado casmurro", 10))
+                .extracting(Book::getIsbn)
+                .containsExactly("1");
+        assertThat(bookSearchService.search("   ", 10)).isEmpty();
+    }
+
+    @Test
+    public void mustFollowSavedAndDeletedBooks() {
+        Book book = persist("1", "Dom Casmurro", "Machado de Assis");
+        bookSearchService.reindex();
+
+        book.setTitle("Quincas Borba");
+        bookSearchService.onBookSaved(new BookSavedEvent(book));
+
+        assertThat(bookSearchService.search("casmurro", 10)).isEmpty();
+        assertThat(bookSearchService.search("quincas", 10)).extracting(Book::getIsbn).containsExactly("1");
+
+        bookSearchService.onBookDeleted(new BookDeletedEvent(book.getId()));
+
+        assertThat(bookSearchService.search("quincas", 10)).isEmpty();
+    }
+
+    private Book persist(String isbn, String title, String author) {
+        return entityManager.persistFlushFind(Book.builder().isbn(isbn).title(title).author(author).build());
+    }
+}
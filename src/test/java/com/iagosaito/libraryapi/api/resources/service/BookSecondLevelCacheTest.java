@@ -0,0 +1,104 @@
+package com.iagosaito.libraryapi.api.resources.service;
+
+import com.iagosaito.libraryapi.core.SecondLevelCacheConfig;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.service.BookService;
+import com.iagosaito.libraryapi.domain.service.BookServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+
+import static com.iagosaito.libraryapi.api.resources.repository.BookRepositoryTest.createNewBookWithoutId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reads outside of any surrounding transaction, as requests make them, so each one starts with an
+ * empty persistence context and can only skip the database through the second-level cache.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({SecondLevelCacheConfig.class, BookServiceImpl.class, SimpleMeterRegistry.class})
+@TestPropertySource(properties = "library.jpa.second-level-cache.statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BookSecondLevelCacheTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setup() {
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        bookRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void mustServeRepeatedReadsByIdFromCache() {
+        Book book = bookService.save(createNewBookWithoutId("1234"));
+        statistics.clear();
+
+        assertThat(bookService.findById(book.getId())).hasValueSatisfying(found ->
+                assertThat(found.getTitle()).isEqualTo("Teste"));
+        assertThat(bookService.findById(book.getId())).isPresent();
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getDomainDataRegionStatistics(Book.CACHE_REGION).getHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void mustServeRepeatedReadsByIsbnFromCache() {
+        Book book = bookService.save(createNewBookWithoutId("1234"));
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        assertThat(bookService.findByIsbn("1234")).isPresent();
+        long firstReadStatements = statistics.getPrepareStatementCount();
+        assertThat(bookService.findByIsbn("1234")).hasValueSatisfying(found ->
+                assertThat(found.getId()).isEqualTo(book.getId()));
+
+        assertThat(firstReadStatements).isPositive();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(firstReadStatements);
+        assertThat(statistics.getNaturalIdCacheHitCount()).isPositive();
+    }
+
+    @Test
+    public void mustMoveCachedIsbnWhenBookIsbnChanges() {
+        Book book = bookService.save(createNewBookWithoutId("1234"));
+        assertThat(bookService.findByIsbn("1234")).isPresent();
+
+        book.setIsbn("4321");
+        bookService.save(book);
+
+        assertThat(bookService.findByIsbn("1234")).isEmpty();
+        assertThat(bookService.findByIsbn("4321")).hasValueSatisfying(found ->
+                assertThat(found.getId()).isEqualTo(book.getId()));
+    }
+}
@@ -4,22 +4,28 @@ import com.iagosaito.libraryapi.domain.exception.BookNotFoundException;
 import com.iagosaito.libraryapi.domain.exception.BusinessException;
 import com.iagosaito.libraryapi.domain.exception.EntityInUseException;
 import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookKeyset;
 import com.iagosaito.libraryapi.domain.repository.BookRepository;
 import com.iagosaito.libraryapi.domain.service.BookService;
 import com.iagosaito.libraryapi.domain.service.BookServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
+import org.hibernate.exception.ConstraintViolationException;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -37,9 +43,12 @@ public class BookServiceTest {
     @MockBean
     private BookRepository bookRepository;
 
+    private SimpleMeterRegistry meterRegistry;
+
     @BeforeEach
     public void setup() {
-        this.bookService = new BookServiceImpl(bookRepository);
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.bookService = new BookServiceImpl(bookRepository, Mockito.mock(ApplicationEventPublisher.class), meterRegistry, true);
     }
 
     @Test
@@ -47,7 +56,7 @@ public class BookServiceTest {
         //given
         Book book = createValidBookWithoutId();
 
-        when(bookRepository.save(book))
+        when(bookRepository.saveAndFlush(book))
                 .thenReturn(
                         Book.builder()
                             .id(1L)
@@ -70,14 +79,65 @@ public class BookServiceTest {
     public void mustNotSaveBookWithDuplicateISBN() {
         Book book = createValidBookWithoutId();
 
-        when(bookRepository.existsByIsbn(Mockito.anyString()))
-                .thenReturn(true);
+        when(bookRepository.saveAndFlush(book))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement",
+                        new ConstraintViolationException("Unique index or primary key violation",
+                                new SQLException(), "PUBLIC.UX_BOOK_ISBN ON PUBLIC.BOOK(ISBN) VALUES 1")));
 
         Throwable businessException = Assertions.catchThrowable(() -> bookService.save(book));
 
         assertThat(businessException)
                 .isInstanceOf(BusinessException.class)
                 .hasMessage("ISBN já cadastrado");
+        assertThat(meterRegistry.get("library.books.rejected").tag("reason", "duplicated_isbn").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("library.books.service").tag("method", "save").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void mustNotUpdateBookToADuplicateISBN() {
+        Book book = createValidBookWithoutId();
+        book.setId(1L);
+        book.setVersion(0L);
+
+        when(bookRepository.saveAndFlush(book))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement",
+                        new ConstraintViolationException("Unique index or primary key violation",
+                                new SQLException(), "PUBLIC.UX_BOOK_ISBN ON PUBLIC.BOOK(ISBN) VALUES 1")));
+
+        Throwable businessException = Assertions.catchThrowable(() -> bookService.save(book));
+
+        assertThat(businessException)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("ISBN já cadastrado");
+    }
+
+    @Test
+    public void mustRethrowIntegrityViolationsOtherThanDuplicateISBN() {
+        Book book = createValidBookWithoutId();
+
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("NULL not allowed", new SQLException(), null));
+
+        when(bookRepository.saveAndFlush(book)).thenThrow(violation);
+
+        Throwable exception = Assertions.catchThrowable(() -> bookService.save(book));
+
+        assertThat(exception).isSameAs(violation);
+    }
+
+    @Test
+    public void mustTimeFindByIdAndItsRepositoryCall() {
+        when(bookRepository.findById(1L)).thenReturn(Optional.empty());
+
+        bookService.findById(1L);
+        bookService.findById(1L);
+
+        assertThat(meterRegistry.get("library.books.service").tag("method", "findById").timer().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("library.books.repository").tag("method", "findById").timer().count())
+                .isEqualTo(2);
     }
 
     @Test
@@ -196,6 +256,22 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    public void mustFilterBooksByKeysetFetchingOneExtraRow() {
+        Book book = createValidBookWithoutId();
+        BookKeyset keyset = BookKeyset.first(Sort.by("title"));
+
+        List<Book> books = Arrays.asList(book, book, book);
+        when(bookRepository.findAll(Mockito.<Example<Book>>any(), Mockito.eq(keyset), Mockito.eq(3)))
+                .thenReturn(books);
+
+        Slice<Book> result = bookService.filter(book, keyset, 2);
+
+        assertThat(result.getContent()).hasSize(2);
+        assertThat(result.hasNext()).isTrue();
+        Mockito.verify(bookRepository, Mockito.never()).count(Mockito.<Example<Book>>any());
+    }
+
     @Test
     public void mustGetBookByIsbn() {
         final String isbn = "1234";
@@ -213,6 +289,29 @@ public class BookServiceTest {
         assertThat(foundBook.get().getIsbn()).isEqualTo(isbn);
     }
 
+    @Test
+    public void mustGetBookReferenceByIsbnWithoutLoadingIt() {
+        final String isbn = "1234";
+
+        Book reference = Book.builder().id(1L).build();
+
+        when(bookRepository.findIdByIsbn(isbn)).thenReturn(Optional.of(1L));
+        when(bookRepository.getOne(1L)).thenReturn(reference);
+
+        Optional<Book> foundBook = bookService.getByIsbn(isbn);
+
+        assertThat(foundBook).containsSame(reference);
+        Mockito.verify(bookRepository, Mockito.never()).findById(Mockito.anyLong());
+    }
+
+    @Test
+    public void mustNotGetBookByUnknownIsbn() {
+        when(bookRepository.findIdByIsbn("999")).thenReturn(Optional.empty());
+
+        assertThat(bookService.getByIsbn("999")).isEmpty();
+        Mockito.verify(bookRepository, Mockito.never()).getOne(Mockito.anyLong());
+    }
+
 
 
     private Book createValidBookWithoutId() {
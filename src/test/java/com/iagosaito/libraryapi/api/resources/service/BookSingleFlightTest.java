@@ -0,0 +1,205 @@
+package com.iagosaito.libraryapi.api.resources.service;
+
+import com.iagosaito.libraryapi.core.PinnedReads;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.service.BookService;
+import com.iagosaito.libraryapi.domain.service.BookServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bursts of lookups for one book while its query is still running. The query is held until every
+ * other caller of the burst is waiting on it, so the burst is guaranteed to overlap.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookSingleFlightTest {
+
+    private static final int BURST = 32;
+
+    private BookService bookService;
+
+    @MockBean
+    private BookRepository bookRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ExecutorService executor;
+
+    private CountDownLatch queryReleased;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        bookService = new BookServiceImpl(bookRepository, Mockito.mock(ApplicationEventPublisher.class), meterRegistry, true);
+        executor = Executors.newFixedThreadPool(BURST);
+        queryReleased = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void mustQueryOnceForABurstOfLookupsById() throws Exception {
+        Book book = createBook();
+        when(bookRepository.findById(1L)).thenAnswer(invocation -> {
+            queryReleased.await();
+            return Optional.of(book);
+        });
+
+        List<Optional<Book>> found = burst("findById", () -> bookService.findById(1L));
+
+        verify(bookRepository, times(1)).findById(1L);
+        assertThat(found).allSatisfy(result -> assertThat(result).contains(book));
+        Set<Book> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        found.forEach(result -> instances.add(result.get()));
+        assertThat(instances).describedAs("instances handed out").hasSize(BURST);
+        assertThat(collapsed("findById", "leader")).isEqualTo(1);
+        assertThat(collapsed("findById", "follower")).isEqualTo(BURST - 1);
+
+        bookService.findById(1L);
+        verify(bookRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void mustQueryOnceForABurstOfLookupsByIsbn() throws Exception {
+        Book book = createBook();
+        when(bookRepository.findByIsbn("1234")).thenAnswer(invocation -> {
+            queryReleased.await();
+            return Optional.of(book);
+        });
+
+        List<Optional<Book>> found = burst("findByIsbn", () -> bookService.findByIsbn("1234"));
+
+        verify(bookRepository, times(1)).findByIsbn("1234");
+        assertThat(found).allSatisfy(result -> assertThat(result).contains(book));
+        assertThat(collapsed("findByIsbn", "follower")).isEqualTo(BURST - 1);
+    }
+
+    @Test
+    public void mustNotJoinABurstWhilePinnedToThePrimary() throws Exception {
+        Book book = createBook();
+        when(bookRepository.findById(1L)).thenAnswer(invocation -> {
+            queryReleased.await();
+            return Optional.of(book);
+        });
+
+        Future<Optional<Book>> leader = executor.submit(() -> bookService.findById(1L));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (collapsed("findById", "leader") < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        Future<Optional<Book>> pinned = executor.submit(() -> {
+            PinnedReads.pin();
+            try {
+                return bookService.findById(1L);
+            } finally {
+                PinnedReads.clear();
+            }
+        });
+
+        verify(bookRepository, Mockito.timeout(10_000).times(2)).findById(1L);
+        queryReleased.countDown();
+
+        assertThat(pinned.get(10, TimeUnit.SECONDS)).contains(book);
+        assertThat(leader.get(10, TimeUnit.SECONDS)).contains(book);
+        assertThat(collapsed("findById", "follower")).isZero();
+    }
+
+    @Test
+    public void mustFailEveryCallerOfABurstWhenItsQueryFails() throws Exception {
+        when(bookRepository.findById(1L)).thenAnswer(invocation -> {
+            queryReleased.await();
+            throw new DataAccessResourceFailureException("Connection is not available");
+        });
+
+        List<Future<Optional<Book>>> lookups = start("findById", () -> bookService.findById(1L));
+
+        for (Future<Optional<Book>> lookup : lookups) {
+            try {
+                lookup.get(10, TimeUnit.SECONDS);
+                fail("lookup should have failed");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(DataAccessResourceFailureException.class);
+            }
+        }
+        verify(bookRepository, times(1)).findById(1L);
+    }
+
+    private List<Optional<Book>> burst(String method, Callable<Optional<Book>> lookup) throws Exception {
+        List<Optional<Book>> found = new ArrayList<>();
+        for (Future<Optional<Book>> result : start(method, lookup)) {
+            found.add(result.get(10, TimeUnit.SECONDS));
+        }
+        return found;
+    }
+
+    /**
+     * Starts the burst and lets its query finish once every other caller is waiting for it.
+     */
+    private List<Future<Optional<Book>>> start(String method, Callable<Optional<Book>> lookup) throws InterruptedException {
+        List<Future<Optional<Book>>> lookups = new ArrayList<>();
+        for (int i = 0; i < BURST; i++) {
+            lookups.add(executor.submit(lookup));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (collapsed(method, "follower") < BURST - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        queryReleased.countDown();
+
+        return lookups;
+    }
+
+    private double collapsed(String method, String role) {
+        return meterRegistry.get("library.books.single-flight")
+                .tag("method", method)
+                .tag("role", role)
+                .counter()
+                .count();
+    }
+
+    private static Book createBook() {
+        return Book.builder()
+                .id(1L)
+                .author("Iago Saito")
+                .title("The Adventures of Iago Saito")
+                .isbn("1234")
+                .version(0L)
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.iagosaito.libraryapi.api.resources.service;
+
+import com.iagosaito.libraryapi.config.FakeMailTransport;
+import com.iagosaito.libraryapi.domain.exception.EmailQueueFullException;
+import com.iagosaito.libraryapi.domain.service.EmailServiceImpl;
+import com.iagosaito.libraryapi.domain.service.MailMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class EmailServiceTest {
+
+    private final FakeMailTransport mailTransport = new FakeMailTransport();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private EmailServiceImpl emailService;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        mailTransport.release();
+        emailService.stop();
+    }
+
+    @Test
+    public void mustCoalesceMessagesToTheSameRecipientAndSendInBatches() throws Exception {
+        emailService = newEmailService(100, 2, 3);
+
+        emailService.sendEmail("ana@library.com", "first");
+        emailService.sendEmail("bia@library.com", "only");
+        emailService.sendEmail("ana@library.com", "second");
+        emailService.sendEmail("caio@library.com", "last");
+        emailService.start();
+
+        List<MailMessage> messages = mailTransport.awaitMessages(3, 2_000);
+
+        assertThat(mailTransport.getBatches()).extracting(List::size).containsExactly(2, 1);
+        assertThat(messages).extracting(MailMessage::getRecipient)
+                .containsExactly("ana@library.com", "bia@library.com", "caio@library.com");
+        assertThat(messages.get(0).getBody()).isEqualTo("first\n\nsecond");
+        assertThat(meterRegistry.counter("library.mail.requests", "outcome", "coalesced").count()).isEqualTo(1);
+        assertThat(meterRegistry.timer("library.mail.send").count()).isEqualTo(2);
+    }
+
+    @Test
+    public void mustRetryFailedBatchesWithBackoff() throws Exception {
+        emailService = newEmailService(100, 10, 3);
+        mailTransport.failNext(2);
+        emailService.start();
+
+        long start = System.nanoTime();
+        emailService.sendEmail("ana@library.com", "hello");
+
+        mailTransport.awaitMessages(1, 2_000);
+
+        assertThat(mailTransport.getAttempts()).isEqualTo(3);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(30));
+        assertThat(meterRegistry.counter("library.mail.emails", "outcome", "sent").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void mustGiveUpAfterMaxAttempts() throws Exception {
+        emailService = newEmailService(100, 10, 2);
+        mailTransport.failNext(5);
+        emailService.start();
+
+        emailService.sendEmail("ana@library.com", "hello");
+        emailService.stop();
+
+        assertThat(mailTransport.getAttempts()).isEqualTo(2);
+        assertThat(mailTransport.getBatches()).isEmpty();
+        assertThat(meterRegistry.counter("library.mail.emails", "outcome", "failed").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void mustRejectWithinTheOfferTimeoutWhenQueueStaysFull() {
+        emailService = newEmailService(2, 10, 3);
+
+        emailService.sendEmail("ana@library.com", "1");
+        emailService.sendEmail("bia@library.com", "2");
+
+        long start = System.nanoTime();
+        Throwable exception = catchThrowable(() -> emailService.sendEmail("caio@library.com", "3"));
+
+        assertThat(exception).isInstanceOf(EmailQueueFullException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start))
+                .isGreaterThanOrEqualTo(Duration.ofMillis(50))
+                .isLessThan(Duration.ofMillis(500));
+        assertThat(meterRegistry.get("library.mail.queue.depth").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.counter("library.mail.requests", "outcome", "rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void mustRejectOnceStopped() throws Exception {
+        emailService = newEmailService(100, 10, 3);
+        emailService.start();
+        emailService.stop();
+
+        Throwable exception = catchThrowable(() -> emailService.sendEmail("ana@library.com", "1"));
+
+        assertThat(exception).isInstanceOf(IllegalStateException.class);
+        assertThat(meterRegistry.counter("library.mail.requests", "outcome", "rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void mustNotBlockCallersOnSlowTransportAndDrainOnStop() throws Exception {
+        emailService = newEmailService(100, 10, 3);
+        mailTransport.hold();
+        emailService.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            emailService.sendEmail("reader" + i + "@library.com", "hello");
+        }
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(500));
+
+        mailTransport.release();
+        emailService.stop();
+
+        assertThat(mailTransport.getBatches().stream().mapToInt(List::size).sum()).isEqualTo(20);
+    }
+
+    private EmailServiceImpl newEmailService(int queueCapacity, int batchSize, int maxAttempts) {
+        return new EmailServiceImpl(mailTransport, meterRegistry, queueCapacity, batchSize, 1, maxAttempts,
+                Duration.ofMillis(10), Duration.ofMillis(50));
+    }
+}
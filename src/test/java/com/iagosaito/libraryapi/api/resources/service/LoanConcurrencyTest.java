@@ -0,0 +1,178 @@
+package com.iagosaito.libraryapi.api.resources.service;
+
+import com.iagosaito.libraryapi.domain.exception.BusinessException;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.BookRepository;
+import com.iagosaito.libraryapi.domain.repository.LoanRepository;
+import com.iagosaito.libraryapi.domain.service.LoanReturnResult;
+import com.iagosaito.libraryapi.domain.service.LoanService;
+import com.iagosaito.libraryapi.domain.service.LoanServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.iagosaito.libraryapi.api.resources.repository.BookRepositoryTest.createNewBookWithoutId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many threads lending one hot book and a pool of cold ones, each cold loan returned right away.
+ * Every committed loan must find its book free, so no book is ever open twice. Threads returning
+ * the same loans at once must between them report each loan returned exactly once.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({LoanServiceImpl.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LoanConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanConcurrencyTest.class);
+
+    private static final int THREADS = 8;
+
+    private static final int LOANS_PER_THREAD = 125;
+
+    private static final int COLD_BOOKS = 200;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @AfterEach
+    public void cleanup() {
+        loanRepository.deleteAllInBatch();
+        bookRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void mustNeverLendABookTwiceUnderConcurrentLoans() throws Exception {
+        Book hotBook = bookRepository.save(createNewBookWithoutId("hot"));
+        List<Book> coldBooks = bookRepository.saveAll(IntStream.range(0, COLD_BOOKS)
+                .mapToObj(i -> createNewBookWithoutId("cold-" + i))
+                .collect(Collectors.toList()));
+
+        Map<Long, AtomicInteger> openLoans = new ConcurrentHashMap<>();
+        AtomicInteger doubleLoans = new AtomicInteger();
+        AtomicInteger hotLoans = new AtomicInteger();
+        AtomicInteger coldLoans = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+
+                for (int i = 0; i < LOANS_PER_THREAD; i++) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    boolean hot = random.nextInt(4) == 0;
+                    Book book = hot ? hotBook : coldBooks.get(random.nextInt(COLD_BOOKS));
+
+                    Loan loan;
+                    try {
+                        loan = loanService.save(Loan.builder().book(book).customer("Iago Saito").build());
+                    } catch (BusinessException e) {
+                        rejected.incrementAndGet();
+                        continue;
+                    }
+
+                    AtomicInteger open = openLoans.computeIfAbsent(book.getId(), id -> new AtomicInteger());
+                    if (open.incrementAndGet() > 1) {
+                        doubleLoans.incrementAndGet();
+                    }
+
+                    if (hot) {
+                        hotLoans.incrementAndGet();
+                    } else {
+                        coldLoans.incrementAndGet();
+                        open.decrementAndGet();
+                        loan.setReturned(true);
+                        loanService.update(loan);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        executor.shutdown();
+
+        int attempts = THREADS * LOANS_PER_THREAD;
+        log.info("{} loan attempts by {} threads in {} ms ({} attempts/s): {} hot loans, {} cold loans, {} rejected",
+                attempts, THREADS, elapsedMillis, attempts * 1000L / elapsedMillis,
+                hotLoans.get(), coldLoans.get(), rejected.get());
+
+        assertThat(doubleLoans.get()).isZero();
+        assertThat(hotLoans.get()).isEqualTo(1);
+        assertThat(hotLoans.get() + coldLoans.get() + rejected.get()).isEqualTo(attempts);
+        assertThat(loanRepository.count()).isEqualTo(hotLoans.get() + coldLoans.get());
+        assertThat(loanRepository.existsByBookAndReturnedFalse(hotBook)).isTrue();
+    }
+
+    @Test
+    public void mustReportEachLoanReturnedOnceUnderConcurrentReturns() throws Exception {
+        List<Long> loanIds = bookRepository.saveAll(IntStream.range(0, COLD_BOOKS)
+                .mapToObj(i -> createNewBookWithoutId("cold-" + i))
+                .collect(Collectors.toList())).stream()
+                .map(book -> loanService.save(Loan.builder().book(book).customer("Iago Saito").build()).getLoanId())
+                .collect(Collectors.toList());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<LoanReturnResult>> workers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                return loanService.returnLoans(loanIds, Collections.emptyList());
+            }));
+        }
+
+        start.countDown();
+        long returned = 0;
+        for (Future<LoanReturnResult> worker : workers) {
+            returned += worker.get(60, TimeUnit.SECONDS).getReturned();
+        }
+        executor.shutdown();
+
+        assertThat(returned).isEqualTo(COLD_BOOKS);
+    }
+}
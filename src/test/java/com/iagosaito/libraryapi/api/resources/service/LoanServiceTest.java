@@ -1,23 +1,37 @@
 package com.iagosaito.libraryapi.api.resources.service;
 
+import com.iagosaito.libraryapi.domain.event.BookLoanedEvent;
+import com.iagosaito.libraryapi.domain.event.BooksReturnedEvent;
 import com.iagosaito.libraryapi.domain.exception.BusinessException;
 import com.iagosaito.libraryapi.domain.repository.LoanRepository;
+import com.iagosaito.libraryapi.domain.repository.LoanState;
 import com.iagosaito.libraryapi.domain.model.Book;
 import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.service.LoanReturnResult;
+import com.iagosaito.libraryapi.domain.service.LoanReturnResult.Outcome;
 import com.iagosaito.libraryapi.domain.service.LoanService;
 import com.iagosaito.libraryapi.domain.service.LoanServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
@@ -29,16 +43,20 @@ public class LoanServiceTest {
     @MockBean
     private LoanRepository loanRepository;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
     @BeforeEach
     public void setup() {
-        loanService = new LoanServiceImpl(loanRepository);
+        loanService = new LoanServiceImpl(loanRepository, eventPublisher, meterRegistry, 16, 2, 7);
     }
 
     @Test
     public void mustSaveLoan() {
         Loan loan = createNewLoanWithId();
 
-        when(loanRepository.existsByBookAndNotReturned(loan.getBook())).thenReturn(false);
+        when(loanRepository.existsByBookAndReturnedFalse(loan.getBook())).thenReturn(false);
         when(loanRepository.save(loan)).thenReturn(loan);
 
         Loan savedLoan = loanService.save(loan);
@@ -47,6 +65,7 @@ public class LoanServiceTest {
         assertThat(savedLoan.getLocalDate()).isEqualTo(loan.getLocalDate());
         assertThat(savedLoan.getCustomer()).isEqualTo(loan.getCustomer());
         assertThat(savedLoan.getBook()).isEqualTo(loan.getBook());
+        verify(eventPublisher).publishEvent(argThat((BookLoanedEvent event) -> event.getBookId().equals(1L)));
     }
 
     @Test
@@ -54,16 +73,36 @@ public class LoanServiceTest {
 
         Loan loan = createNewLoanWithId();
 
-        when(loanRepository.existsByBookAndNotReturned(loan.getBook())).thenReturn(true);
+        when(loanRepository.existsByBookAndReturnedFalse(loan.getBook())).thenReturn(true);
 
         Throwable exception = catchThrowable(() -> loanService.save(loan));
 
         assertThat(exception).isInstanceOf(BusinessException.class)
                 .hasMessage("Book already loaned");
+        assertThat(meterRegistry.get("library.loans.rejected").tag("reason", "already_loaned").counter().count())
+                .isEqualTo(1);
 
         verify(loanRepository, never()).save(any(Loan.class));
     }
 
+    @Test
+    public void mustReportAlreadyLoanedWhenOpenLoanIndexRejectsTheInsert() {
+
+        Loan loan = createNewLoanWithId();
+
+        when(loanRepository.existsByBookAndReturnedFalse(loan.getBook())).thenReturn(false);
+        when(loanRepository.save(loan)).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("unique index", new SQLException(),
+                        LoanRepository.OPEN_LOAN_UNIQUE_INDEX.toUpperCase())));
+
+        Throwable exception = catchThrowable(() -> loanService.save(loan));
+
+        assertThat(exception).isInstanceOf(BusinessException.class)
+                .hasMessage("Book already loaned");
+        assertThat(meterRegistry.get("library.loans.rejected").tag("reason", "already_loaned").counter().count())
+                .isEqualTo(1);
+    }
+
     @Test
     public void mustFindLoanById() {
         final long loanId = 1L;
@@ -88,11 +127,58 @@ public class LoanServiceTest {
         Loan loan = createNewLoanWithId();
         loan.setReturned(true);
 
+        when(loanRepository.findReturnedById(loan.getLoanId())).thenReturn(Optional.of(false));
         when(loanRepository.save(loan)).thenReturn(loan);
 
         Loan savedLoan = loanService.update(loan);
 
         assertThat(savedLoan.getReturned()).isEqualTo(loan.getReturned());
+        verify(eventPublisher).publishEvent(argThat((BooksReturnedEvent event) ->
+                event.getBookIds().equals(Collections.singletonList(1L))));
+    }
+
+    @Test
+    public void mustNotAnnounceAReturnOfALoanAlreadyReturned() {
+        Loan loan = createNewLoanWithId();
+        loan.setReturned(true);
+
+        when(loanRepository.findReturnedById(loan.getLoanId())).thenReturn(Optional.of(true));
+        when(loanRepository.save(loan)).thenReturn(loan);
+
+        loanService.update(loan);
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void mustReturnLoansInBatchesWithAnOutcomePerItem() {
+        when(loanRepository.findStates(Arrays.asList(1L, 2L)))
+                .thenReturn(Arrays.asList(new LoanState(1L, 10L, "111", false), new LoanState(2L, 20L, "222", true)));
+        when(loanRepository.findStates(Collections.singletonList(3L)))
+                .thenReturn(Collections.emptyList());
+        when(loanRepository.markReturned(anyCollection())).thenReturn(1);
+        when(loanRepository.findOpenStatesByIsbn(Arrays.asList("444", "555")))
+                .thenReturn(Collections.singletonList(new LoanState(4L, 40L, "444", false)));
+
+        LoanReturnResult result = loanService.returnLoans(Arrays.asList(1L, 2L, 3L, 1L), Arrays.asList("444", "555"));
+
+        assertThat(result.getReturned()).isEqualTo(2);
+        assertThat(result.getItems())
+                .extracting(LoanReturnResult.Item::getLoanId, LoanReturnResult.Item::getIsbn, LoanReturnResult.Item::getOutcome)
+                .containsExactly(
+                        tuple(1L, "111", Outcome.RETURNED),
+                        tuple(2L, "222", Outcome.ALREADY_RETURNED),
+                        tuple(3L, null, Outcome.NOT_FOUND),
+                        tuple(4L, "444", Outcome.RETURNED),
+                        tuple(null, "555", Outcome.NOT_LOANED));
+
+        verify(loanRepository).markReturned(Collections.singletonList(1L));
+        verify(loanRepository).markReturned(Collections.singletonList(4L));
+        verify(loanRepository, never()).save(any(Loan.class));
+
+        ArgumentCaptor<BooksReturnedEvent> event = ArgumentCaptor.forClass(BooksReturnedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getBookIds()).containsExactly(10L, 40L);
     }
 
     private Loan createNewLoanWithId() {
@@ -0,0 +1,147 @@
+package com.iagosaito.libraryapi.api.resources.service;
+
+import com.iagosaito.libraryapi.domain.exception.EmailQueueFullException;
+import com.iagosaito.libraryapi.domain.model.Book;
+import com.iagosaito.libraryapi.domain.model.Loan;
+import com.iagosaito.libraryapi.domain.repository.LoanRepository;
+import com.iagosaito.libraryapi.domain.service.EmailService;
+import com.iagosaito.libraryapi.domain.service.ScheduleLoanService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.iagosaito.libraryapi.api.resources.repository.BookRepositoryTest.createNewBookWithoutId;
+import static com.iagosaito.libraryapi.api.resources.repository.LoanRepositoryTest.createNewLoanWithoutId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class ScheduleLoanServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    private final Map<String, String> sentEmails = new ConcurrentHashMap<>();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger queueFullAnswers = new AtomicInteger(3);
+
+    private ScheduleLoanService scheduleLoanService;
+
+    @BeforeEach
+    public void setup() {
+        EmailService emailService = (email, message) -> {
+            if (email.startsWith("busy") && queueFullAnswers.getAndDecrement() > 0) {
+                throw new EmailQueueFullException("Email queue is full");
+            }
+            if (email.startsWith("broken")) {
+                throw new IllegalStateException("mailbox unavailable");
+            }
+            sentEmails.put(email, message);
+        };
+
+        scheduleLoanService = new ScheduleLoanService(loanRepository, emailService, meterRegistry, 7, 2);
+    }
+
+    @Test
+    public void mustNotifyEachCustomerOnceAboutAllOverdueLoans() {
+        persistLoan("1", "ana@library.com", 10, false);
+        persistLoan("2", "ana@library.com", 8, false);
+        persistLoan("3", "ana@library.com", 30, false);
+        persistLoan("4", "bia@library.com", 7, false);
+        persistLoan("5", "bia@library.com", 3, false);
+        persistLoan("6", "caio@library.com", 20, true);
+        persistLoan("7", null, 20, false);
+        entityManager.clear();
+
+        scheduleLoanService.notifyLoanDebt();
+
+        assertThat(sentEmails).containsOnlyKeys("ana@library.com", "bia@library.com");
+        assertThat(sentEmails.get("ana@library.com"))
+                .contains("ISBN 1", "ISBN 2", "ISBN 3");
+        assertThat(sentEmails.get("bia@library.com"))
+                .contains("ISBN 4")
+                .doesNotContain("ISBN 5");
+
+        assertThat(meterRegistry.counter("library.loans.overdue").count()).isEqualTo(4);
+        assertThat(meterRegistry.counter("library.loans.overdue.unreachable").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("library.loans.overdue.notifications", "outcome", "queued").count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.timer("library.loans.overdue.scan").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void mustCountLoansWithABlankEmailAsUnreachable() {
+        persistLoan("1", "", 10, false);
+        persistLoan("2", "   ", 10, false);
+        persistLoan("3", null, 10, false);
+        persistLoan("4", "eva@library.com", 10, false);
+        entityManager.clear();
+
+        scheduleLoanService.notifyLoanDebt();
+
+        assertThat(sentEmails).containsOnlyKeys("eva@library.com");
+        assertThat(meterRegistry.counter("library.loans.overdue").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("library.loans.overdue.unreachable").count()).isEqualTo(3);
+        assertThat(meterRegistry.counter("library.loans.overdue.notifications", "outcome", "failed").count())
+                .isZero();
+    }
+
+    @Test
+    public void mustKeepNotifyingWhenOneEmailFails() {
+        persistLoan("1", "broken@library.com", 10, false);
+        persistLoan("2", "dani@library.com", 10, false);
+        entityManager.clear();
+
+        scheduleLoanService.notifyLoanDebt();
+
+        assertThat(sentEmails).containsOnlyKeys("dani@library.com");
+        assertThat(meterRegistry.counter("library.loans.overdue.notifications", "outcome", "failed").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void mustOfferANoticeAgainWhileTheMailQueueIsFull() {
+        persistLoan("1", "busy@library.com", 10, false);
+        entityManager.clear();
+
+        scheduleLoanService.notifyLoanDebt();
+
+        assertThat(sentEmails).containsOnlyKeys("busy@library.com");
+        assertThat(meterRegistry.counter("library.loans.overdue.notifications", "outcome", "queued").count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.counter("library.loans.overdue.notifications", "outcome", "failed").count())
+                .isZero();
+    }
+
+    private void persistLoan(String isbn, String email, int daysAgo, boolean returned) {
+        Book book = entityManager.persist(createNewBookWithoutId(isbn));
+
+        Loan loan = createNewLoanWithoutId(book);
+        loan.setCustomerEmail(email);
+        loan.setReturned(returned);
+        loan = entityManager.persistAndFlush(loan);
+
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Loan l SET l.localDate = :localDate WHERE l.loanId = :loanId")
+                .setParameter("localDate", LocalDate.now().minusDays(daysAgo))
+                .setParameter("loanId", loan.getLoanId())
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,79 @@
+package com.iagosaito.libraryapi.config;
+
+import com.iagosaito.libraryapi.domain.service.MailMessage;
+import com.iagosaito.libraryapi.domain.service.MailTransport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stand-in for the mail server: keeps every delivered batch, and can be told to fail the
+ * next attempts or to hold deliveries until released.
+ */
+public class FakeMailTransport implements MailTransport {
+
+    private final List<List<MailMessage>> batches = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    @Override
+    public void send(List<MailMessage> batch) {
+        attempts.incrementAndGet();
+
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+
+        if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+            throw new IllegalStateException("421 Service not available");
+        }
+
+        batches.add(new ArrayList<>(batch));
+    }
+
+    public void failNext(int attempts) {
+        failuresLeft.set(attempts);
+    }
+
+    public void hold() {
+        gate = new CountDownLatch(1);
+    }
+
+    public void release() {
+        gate.countDown();
+    }
+
+    public int getAttempts() {
+        return attempts.get();
+    }
+
+    public List<List<MailMessage>> getBatches() {
+        return batches;
+    }
+
+    public List<MailMessage> awaitMessages(int count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        while (System.nanoTime() < deadline) {
+            List<MailMessage> messages = new ArrayList<>();
+            batches.forEach(messages::addAll);
+            if (messages.size() >= count) {
+                return messages;
+            }
+            Thread.sleep(5);
+        }
+
+        throw new AssertionError("Expected " + count + " delivered emails, got " + batches);
+    }
+}
@@ -1,6 +1,8 @@
 package com.iagosaito.libraryapi.config;
 
-import org.modelmapper.ModelMapper;
+import com.iagosaito.libraryapi.api.mapper.BookMapper;
+import com.iagosaito.libraryapi.api.mapper.LoanMapper;
+import org.mapstruct.factory.Mappers;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 
@@ -8,7 +10,12 @@ import org.springframework.context.annotation.Bean;
 public class LibraryTestConfig {
 
     @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
+    public BookMapper bookMapper() {
+        return Mappers.getMapper(BookMapper.class);
+    }
+
+    @Bean
+    public LoanMapper loanMapper() {
+        return Mappers.getMapper(LoanMapper.class);
     }
 }
@@ -0,0 +1,19 @@
+package com.iagosaito.libraryapi.core;
+
+/**
+ * Pins the calling thread to the primary the way a request that wrote, or carries the
+ * {@link ReadYourWrites#COOKIE}, would be, for tests outside a web request.
+ */
+public final class PinnedReads {
+
+    private PinnedReads() {
+    }
+
+    public static void pin() {
+        ReadYourWrites.pin();
+    }
+
+    public static void clear() {
+        ReadYourWrites.clear();
+    }
+}